@@ -0,0 +1,14 @@
+package com.pyjtlk.waveloadview.benchmark;
+
+/**
+ * 基准测试共用的几何参数，对应默认dp值在xxhdpi下的像素大小
+ */
+final class BenchmarkConfig {
+    static final int IMAGE_SIZE = 30;
+    static final int INTERVAL = 15;
+    static final float WAVE_OFFSET = 0.5f;
+    static final int WAVE_BOTTOM = 200;
+
+    private BenchmarkConfig(){
+    }
+}
@@ -0,0 +1,108 @@
+package com.pyjtlk.waveloadview.benchmark;
+
+import com.pyjtlk.waveloadview.core.AlphaBatchCanvas;
+import com.pyjtlk.waveloadview.core.WaveCanvas;
+import com.pyjtlk.waveloadview.core.WaveLayoutEngine;
+import com.pyjtlk.waveloadview.core.WaveRenderer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 完整一帧的基准测试：波移动一步、计算布局，再按风格绘制到记录型画布上
+ * 结果单位为ns/帧，配合gc分析器的gc.alloc.rate.norm得到每帧分配的字节数
+ * batch为true时经过{@link AlphaBatchCanvas}按透明度合并绘制
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DrawBenchmark {
+    @Param({"text", "circle", "square", "rect", "noise", "drawable", "custom"})
+    public String style;
+
+    @Param({"16", "128"})
+    public int length;
+
+    @Param({"false", "true"})
+    public boolean ghostEffect;
+
+    @Param({"false", "true"})
+    public boolean batch;
+
+    private WaveLayoutEngine mEngine;
+    private WaveRenderer mRenderer;
+    private RecordingWaveCanvas mCanvas;
+    private AlphaBatchCanvas mBatchCanvas;
+
+    @Setup
+    public void setUp(){
+        mEngine = new WaveLayoutEngine(length,9);
+        mEngine.setGhostAlpha(100,255);
+        mEngine.prepareElementsX(0,BenchmarkConfig.IMAGE_SIZE,BenchmarkConfig.INTERVAL);
+
+        mRenderer = new WaveRenderer();
+        mRenderer.setImageSize(BenchmarkConfig.IMAGE_SIZE);
+        mRenderer.setRectRadius("square".equals(style) || "rect".equals(style) ? 8 : 0);
+        mRenderer.setWaveBottom(BenchmarkConfig.WAVE_BOTTOM);
+        mRenderer.setTextBaseline(BenchmarkConfig.IMAGE_SIZE * 0.8f);
+        mRenderer.setGhostEffect(ghostEffect);
+
+        mCanvas = new RecordingWaveCanvas();
+        mBatchCanvas = new AlphaBatchCanvas(mCanvas,mCanvas);
+    }
+
+    @Benchmark
+    public long frame(){
+        mEngine.moveWave();
+        mEngine.prepareElementsY(BenchmarkConfig.WAVE_BOTTOM,BenchmarkConfig.IMAGE_SIZE,BenchmarkConfig.WAVE_OFFSET);
+
+        WaveCanvas canvas = batch ? mBatchCanvas : mCanvas;
+        switch(style){
+            case "text":
+                mRenderer.drawText(mEngine,canvas);
+                break;
+
+            case "circle":
+                mRenderer.drawCircles(mEngine,canvas);
+                break;
+
+            case "square":
+                mRenderer.drawSquares(mEngine,canvas);
+                break;
+
+            case "rect":
+                mRenderer.drawRects(mEngine,canvas);
+                break;
+
+            case "noise":
+                mRenderer.drawNoise(mEngine,canvas);
+                break;
+
+            case "drawable":
+                mRenderer.drawImages(mEngine,canvas);
+                break;
+
+            case "custom":
+                mRenderer.drawCustom(mEngine,canvas);
+                break;
+        }
+        if(batch){
+            mBatchCanvas.flush();
+        }
+        return mCanvas.getChecksum();
+    }
+}
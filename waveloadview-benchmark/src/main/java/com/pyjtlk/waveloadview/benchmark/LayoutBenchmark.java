@@ -0,0 +1,62 @@
+package com.pyjtlk.waveloadview.benchmark;
+
+import com.pyjtlk.waveloadview.core.WaveLayoutEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * prepareElementsX/prepareElementsY的基准测试
+ * 每次调用前波移动一步，一个完整周期会经过奇偶两种情况下的case1/2/3分支
+ * frameTable为true时对比查表的开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LayoutBenchmark {
+    @Param({"3", "4", "9", "10", "31", "32"})
+    public int waveLength;
+
+    @Param({"16", "64", "256", "2048"})
+    public int length;
+
+    @Param({"false", "true"})
+    public boolean frameTable;
+
+    private WaveLayoutEngine mEngine;
+
+    @Setup
+    public void setUp(){
+        mEngine = new WaveLayoutEngine(length,waveLength);
+        mEngine.setGhostAlpha(100,255);
+        mEngine.setFrameTableEnabled(frameTable);
+        mEngine.buildFrameTable(BenchmarkConfig.WAVE_BOTTOM,BenchmarkConfig.IMAGE_SIZE,BenchmarkConfig.WAVE_OFFSET);
+    }
+
+    @Benchmark
+    public int prepareElementsY(){
+        mEngine.moveWave();
+        mEngine.prepareElementsY(BenchmarkConfig.WAVE_BOTTOM,BenchmarkConfig.IMAGE_SIZE,BenchmarkConfig.WAVE_OFFSET);
+        return mEngine.getY(length / 2);
+    }
+
+    @Benchmark
+    public int prepareElementsX(){
+        mEngine.prepareElementsX(0,BenchmarkConfig.IMAGE_SIZE,BenchmarkConfig.INTERVAL);
+        return mEngine.getX(length - 1);
+    }
+}
@@ -0,0 +1,105 @@
+package com.pyjtlk.waveloadview.benchmark;
+
+import com.pyjtlk.waveloadview.core.AlphaBatchCanvas;
+import com.pyjtlk.waveloadview.core.WaveCanvas;
+
+/**
+ * 代替Android Canvas的记录型画布，只记录绘制调用次数和参数校验和，
+ * 让基准测试只衡量布局和渲染逻辑本身的开销
+ * 作为批量绘制的目标时，每组记为一次绘制调用
+ */
+public class RecordingWaveCanvas implements WaveCanvas,AlphaBatchCanvas.Sink {
+    private int mDrawCalls;
+    private int mAlphaChanges;
+    private long mChecksum;
+
+    /**
+     * 自定义绘制时模拟三角形路径的顶点
+     */
+    private final float mPath[] = new float[6];
+
+    private void record(float a,float b,float c,float d,int alpha){
+        mDrawCalls++;
+        if(alpha != ALPHA_NONE){
+            mAlphaChanges++;
+            mChecksum += alpha;
+        }
+        mChecksum = mChecksum * 31 + Float.floatToRawIntBits(a + b + c + d);
+    }
+
+    @Override
+    public void drawText(int index, float x, float y, int alpha) {
+        record(index,x,y,0,alpha);
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, int alpha) {
+        record(cx,cy,radius,0,alpha);
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, int alpha) {
+        record(left,top,right,bottom,alpha);
+    }
+
+    @Override
+    public void drawRoundRect(float left, float top, float right, float bottom, float radius, int alpha) {
+        record(left,top,right,bottom + radius,alpha);
+    }
+
+    @Override
+    public void drawImage(int left, int top, int right, int bottom, int alpha) {
+        record(left,top,right,bottom,alpha);
+    }
+
+    @Override
+    public void drawCustom(int left, int top, int right, int bottom, int alpha) {
+        mPath[0] = left;
+        mPath[1] = bottom;
+        mPath[2] = right;
+        mPath[3] = bottom;
+        mPath[4] = left + (right - left) / 2;
+        mPath[5] = top;
+        record(mPath[0] + mPath[2],mPath[1] + mPath[3],mPath[4],mPath[5],alpha);
+    }
+
+    private void recordBatch(float coords[],int size,int alpha){
+        float sum = 0;
+        for(int i = 0;i < size;i++){
+            sum += coords[i];
+        }
+        record(sum,size,0,0,alpha);
+    }
+
+    @Override
+    public void drawCircles(float[] centers, int count, float radius, int alpha) {
+        recordBatch(centers,count * 2,alpha);
+    }
+
+    @Override
+    public void drawRects(float[] rects, int count, int alpha) {
+        recordBatch(rects,count * 4,alpha);
+    }
+
+    @Override
+    public void drawRoundRects(float[] rects, int count, float radius, int alpha) {
+        recordBatch(rects,count * 4,alpha);
+    }
+
+    public void reset(){
+        mDrawCalls = 0;
+        mAlphaChanges = 0;
+    }
+
+    public int getDrawCalls(){
+        return mDrawCalls;
+    }
+
+    public int getAlphaChanges(){
+        return mAlphaChanges;
+    }
+
+    public long getChecksum(){
+        return mChecksum;
+    }
+}
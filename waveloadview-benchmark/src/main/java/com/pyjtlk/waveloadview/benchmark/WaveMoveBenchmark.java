@@ -0,0 +1,62 @@
+package com.pyjtlk.waveloadview.benchmark;
+
+import com.pyjtlk.waveloadview.core.WaveLayoutEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * waveMove的基准测试，分为默认移动和使用波控制器移动两种情况
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WaveMoveBenchmark {
+    /**
+     * 与WaveLoadingView.WaveControler相同的回调形式，让波来回摆动
+     */
+    private static final class PingPongControler {
+        private int mDirection = 1;
+
+        int onRefresh(int currentPostion,int start,int end){
+            if(currentPostion + mDirection > end || currentPostion + mDirection < start){
+                mDirection = -mDirection;
+            }
+            return currentPostion + mDirection;
+        }
+    }
+
+    private WaveLayoutEngine mEngine;
+    private PingPongControler mControler;
+
+    @Setup
+    public void setUp(){
+        mEngine = new WaveLayoutEngine(64,9);
+        mControler = new PingPongControler();
+    }
+
+    @Benchmark
+    public int waveMove(){
+        mEngine.moveWave();
+        return mEngine.getWaveStart();
+    }
+
+    @Benchmark
+    public int waveMoveWithControler(){
+        mEngine.setWaveStart(mControler.onRefresh(mEngine.getWaveStart(),0,mEngine.getElementsTotal() - 1));
+        return mEngine.getWaveStart();
+    }
+}
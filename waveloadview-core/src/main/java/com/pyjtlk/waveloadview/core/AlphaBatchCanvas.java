@@ -0,0 +1,184 @@
+package com.pyjtlk.waveloadview.core;
+
+/**
+ * 按透明度分组的批量画布，把同一透明度的圆点、矩形和圆角矩形收集起来，
+ * {@link #flush}时每组只交给{@link Sink}绘制一次，绘制调用的次数只和透明度的种类有关，和元素个数无关
+ * 元素之间不会重叠，所以改变绘制顺序不影响结果
+ * 文本、图片和自定义元素无法合并，直接转发给目标画布
+ */
+public class AlphaBatchCanvas implements WaveCanvas {
+    private static final int KIND_NONE = 0;
+    private static final int KIND_CIRCLE = 1;
+    private static final int KIND_RECT = 2;
+    private static final int KIND_ROUND_RECT = 3;
+
+    /**
+     * 合并后的绘制目标，坐标数组在每帧之间复用，绘制时可以直接在原数组上修改
+     */
+    public interface Sink{
+        /**
+         * 绘制一组半径相同的圆点
+         * @param centers 圆心坐标，依次为x、y
+         * @param count 圆点个数
+         * @param radius 半径
+         * @param alpha 透明度，{@link WaveCanvas#ALPHA_NONE}表示不修改画笔透明度
+         */
+        void drawCircles(float centers[],int count,float radius,int alpha);
+
+        /**
+         * 绘制一组矩形
+         * @param rects 矩形坐标，依次为left、top、right、bottom
+         * @param count 矩形个数
+         * @param alpha 透明度
+         */
+        void drawRects(float rects[],int count,int alpha);
+
+        /**
+         * 绘制一组圆角半径相同的圆角矩形
+         * @param rects 矩形坐标，依次为left、top、right、bottom
+         * @param count 矩形个数
+         * @param radius 圆角半径
+         * @param alpha 透明度
+         */
+        void drawRoundRects(float rects[],int count,float radius,int alpha);
+    }
+
+    private final WaveCanvas mDirect;
+    private final Sink mSink;
+
+    /**
+     * 透明度（加1）到分组的映射，-1表示这一帧还没有这个透明度
+     */
+    private final int mBucketOfAlpha[] = new int[257];
+    private final int mBucketAlpha[] = new int[257];
+    private final float mCoords[][] = new float[257][];
+
+    /**
+     * 每组已使用的坐标个数
+     */
+    private final int mSizes[] = new int[257];
+    private int mBucketCount;
+    private int mKind = KIND_NONE;
+    private float mRadius;
+    private int mOffset;
+
+    /**
+     * @param direct 无法合并的元素直接绘制到这个画布上
+     * @param sink 合并后的绘制目标
+     */
+    public AlphaBatchCanvas(WaveCanvas direct,Sink sink){
+        mDirect = direct;
+        mSink = sink;
+        for(int i = 0;i < mBucketOfAlpha.length;i++){
+            mBucketOfAlpha[i] = -1;
+        }
+    }
+
+    /**
+     * 把收集到的元素按组交给{@link Sink}绘制，每帧绘制完需要调用一次
+     */
+    public void flush(){
+        for(int i = 0;i < mBucketCount;i++){
+            int alpha = mBucketAlpha[i];
+            switch(mKind){
+                case KIND_CIRCLE:
+                    mSink.drawCircles(mCoords[i],mSizes[i] / 2,mRadius,alpha);
+                    break;
+
+                case KIND_RECT:
+                    mSink.drawRects(mCoords[i],mSizes[i] / 4,alpha);
+                    break;
+
+                case KIND_ROUND_RECT:
+                    mSink.drawRoundRects(mCoords[i],mSizes[i] / 4,mRadius,alpha);
+                    break;
+            }
+            mSizes[i] = 0;
+            mBucketOfAlpha[alpha + 1] = -1;
+        }
+        mBucketCount = 0;
+        mKind = KIND_NONE;
+    }
+
+    /**
+     * 种类或半径不同的元素不能放在同一组，先把之前的绘制出去
+     */
+    private void begin(int kind,float radius){
+        if(mBucketCount > 0 && (kind != mKind || radius != mRadius)){
+            flush();
+        }
+        mKind = kind;
+        mRadius = radius;
+    }
+
+    /**
+     * 在透明度对应的组中预留坐标
+     * @return 坐标数组，预留的位置从{@link #mOffset}开始
+     */
+    private float[] reserve(int alpha,int size){
+        int bucket = mBucketOfAlpha[alpha + 1];
+        if(bucket < 0){
+            bucket = mBucketCount++;
+            mBucketOfAlpha[alpha + 1] = bucket;
+            mBucketAlpha[bucket] = alpha;
+        }
+
+        float coords[] = mCoords[bucket];
+        int offset = mSizes[bucket];
+        if(coords == null || offset + size > coords.length){
+            float grown[] = new float[Math.max(64,offset * 2)];
+            if(coords != null){
+                System.arraycopy(coords,0,grown,0,offset);
+            }
+            coords = grown;
+            mCoords[bucket] = coords;
+        }
+
+        mSizes[bucket] = offset + size;
+        mOffset = offset;
+        return coords;
+    }
+
+    private void addRect(float left,float top,float right,float bottom,int alpha){
+        float coords[] = reserve(alpha,4);
+        coords[mOffset] = left;
+        coords[mOffset + 1] = top;
+        coords[mOffset + 2] = right;
+        coords[mOffset + 3] = bottom;
+    }
+
+    @Override
+    public void drawText(int index, float x, float y, int alpha) {
+        mDirect.drawText(index,x,y,alpha);
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, int alpha) {
+        begin(KIND_CIRCLE,radius);
+        float coords[] = reserve(alpha,2);
+        coords[mOffset] = cx;
+        coords[mOffset + 1] = cy;
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, int alpha) {
+        begin(KIND_RECT,0);
+        addRect(left,top,right,bottom,alpha);
+    }
+
+    @Override
+    public void drawRoundRect(float left, float top, float right, float bottom, float radius, int alpha) {
+        begin(KIND_ROUND_RECT,radius);
+        addRect(left,top,right,bottom,alpha);
+    }
+
+    @Override
+    public void drawImage(int left, int top, int right, int bottom, int alpha) {
+        mDirect.drawImage(left,top,right,bottom,alpha);
+    }
+
+    @Override
+    public void drawCustom(int left, int top, int right, int bottom, int alpha) {
+        mDirect.drawCustom(left,top,right,bottom,alpha);
+    }
+}
@@ -0,0 +1,105 @@
+package com.pyjtlk.waveloadview.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 振幅环形缓冲区，单生产者单消费者，无锁
+ * 生产者（例如录音或网络线程）调用{@link #offer}写入，消费者（绘制线程）调用{@link #drainTo}读出，
+ * 两边都不分配内存
+ */
+public final class AmplitudeRingBuffer {
+    private final float mBuffer[];
+    private final int mMask;
+
+    /**
+     * 下一个要读的位置，只由消费者修改
+     */
+    private final AtomicLong mHead = new AtomicLong();
+
+    /**
+     * 下一个要写的位置，只由生产者修改
+     */
+    private final AtomicLong mTail = new AtomicLong();
+
+    /**
+     * @param capacity 容量，会向上取整为2的幂
+     */
+    public AmplitudeRingBuffer(int capacity){
+        if(capacity <= 0){
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if(size < capacity){
+            size <<= 1;
+        }
+        mBuffer = new float[size];
+        mMask = size - 1;
+    }
+
+    /**
+     * 获取容量
+     */
+    public int getCapacity(){
+        return mBuffer.length;
+    }
+
+    /**
+     * 写入一个振幅，只能在生产者线程调用
+     * @param amplitude 振幅，范围0~1，超出范围的会被截断
+     * @return 缓冲区已满时返回false，这个振幅被丢弃
+     */
+    public boolean offer(float amplitude){
+        long tail = mTail.get();
+        if(tail - mHead.get() >= mBuffer.length){
+            return false;
+        }
+
+        if(amplitude < 0 || amplitude != amplitude){
+            amplitude = 0;
+        }else if(amplitude > 1){
+            amplitude = 1;
+        }
+
+        mBuffer[(int) tail & mMask] = amplitude;
+        //lazySet保证振幅先于位置对消费者可见
+        mTail.lazySet(tail + 1);
+        return true;
+    }
+
+    /**
+     * 取出所有已写入的振幅，追加到history的末尾，history中原有的数据向前移动，
+     * 最新的振幅总在最后，只能在消费者线程调用
+     * @param history 振幅历史
+     * @return 取出的振幅个数
+     */
+    public int drainTo(float history[]){
+        long head = mHead.get();
+        long tail = mTail.get();
+        int count = (int) (tail - head);
+        if(count == 0){
+            return 0;
+        }
+
+        int length = history.length;
+        int keep = Math.min(count,length);
+        if(keep < length){
+            System.arraycopy(history,keep,history,0,length - keep);
+        }
+
+        long from = tail - keep;
+        for(int i = 0;i < keep;i++){
+            history[length - keep + i] = mBuffer[(int) (from + i) & mMask];
+        }
+
+        mHead.lazySet(tail);
+        return count;
+    }
+
+    /**
+     * 丢弃所有未读的振幅，只能在消费者线程调用
+     */
+    public void clear(){
+        mHead.lazySet(mTail.get());
+    }
+}
@@ -0,0 +1,159 @@
+package com.pyjtlk.waveloadview.core;
+
+/**
+ * 画质调节器，根据每帧实际的绘制耗时在几个画质档位之间切换
+ * 平滑后的耗时连续多帧超出预算时降一档，连续更多帧低于预算的一半时升一档，两者之间不切换，避免来回跳动
+ * 刚升档又降回来时，下一次升档需要等待的帧数加倍
+ * 设备处于低内存或省电状态时可以设置最低档位，实际档位不会高于它
+ * 时间单位是纳秒，只能在同一个线程上使用
+ */
+public class QualityGovernor {
+    /**
+     * 全部效果
+     */
+    public static final int QUALITY_HIGH = 0;
+
+    /**
+     * 不再逐帧插值，连续模式改为逐步移动，噪声波每个元素的竖条减少
+     */
+    public static final int QUALITY_MEDIUM = 1;
+
+    /**
+     * 在{@link #QUALITY_MEDIUM}的基础上关闭抗锯齿和幻影效果
+     */
+    public static final int QUALITY_LOW = 2;
+
+    /**
+     * 在{@link #QUALITY_LOW}的基础上刷新频率减半，波每次移动两步
+     */
+    public static final int QUALITY_MINIMAL = 3;
+
+    /**
+     * 默认每帧的绘制预算，60帧时一帧的八分之一左右
+     */
+    public static final long DEFAULT_BUDGET_NANOS = 2000000L;
+
+    private static final int DOWNGRADE_FRAMES = 15;
+    private static final int UPGRADE_FRAMES = 120;
+    private static final int MAX_UPGRADE_FRAMES = UPGRADE_FRAMES * 16;
+
+    private long mBudgetNanos;
+    private long mAverageNanos = -1;
+    private int mOverFrames;
+    private int mUnderFrames;
+    private int mUpgradeFrames = UPGRADE_FRAMES;
+    private boolean mLastUpgrade;
+    private int mAdaptiveQuality = QUALITY_HIGH;
+    private int mFloorQuality = QUALITY_HIGH;
+
+    public QualityGovernor(){
+        this(DEFAULT_BUDGET_NANOS);
+    }
+
+    /**
+     * @param budgetNanos 每帧的绘制预算，必须大于0
+     */
+    public QualityGovernor(long budgetNanos){
+        setBudgetNanos(budgetNanos);
+    }
+
+    /**
+     * 记录一帧的绘制耗时
+     * @param drawNanos 这一帧的绘制耗时
+     * @return 档位是否发生变化
+     */
+    public boolean recordFrame(long drawNanos){
+        //平滑系数为1/8，单帧的抖动不会直接触发切换
+        mAverageNanos = mAverageNanos < 0 ? drawNanos : mAverageNanos + (drawNanos - mAverageNanos) / 8;
+
+        if(mAverageNanos > mBudgetNanos){
+            mUnderFrames = 0;
+            int quality = getQuality();
+            if(++mOverFrames >= DOWNGRADE_FRAMES && quality < QUALITY_MINIMAL){
+                if(mLastUpgrade){
+                    mUpgradeFrames = Math.min(mUpgradeFrames * 2,MAX_UPGRADE_FRAMES);
+                }
+                mLastUpgrade = false;
+                //耗时是在实际档位下测得的，从实际档位往下降
+                return setAdaptiveQuality(quality + 1);
+            }
+        }else if(mAverageNanos * 2 < mBudgetNanos){
+            mOverFrames = 0;
+            if(++mUnderFrames >= mUpgradeFrames && mAdaptiveQuality > mFloorQuality){
+                mLastUpgrade = true;
+                return setAdaptiveQuality(mAdaptiveQuality - 1);
+            }
+        }else{
+            mOverFrames = 0;
+            mUnderFrames = 0;
+        }
+        return false;
+    }
+
+    /**
+     * 切换档位后重新开始计算平均耗时
+     */
+    private boolean setAdaptiveQuality(int quality){
+        int oldQuality = getQuality();
+        mAdaptiveQuality = quality;
+        mAverageNanos = -1;
+        mOverFrames = 0;
+        mUnderFrames = 0;
+        return getQuality() != oldQuality;
+    }
+
+    /**
+     * 设置最低档位，由设备状态决定，不受绘制耗时影响
+     * @param quality 档位，{@link #QUALITY_HIGH}表示不限制
+     * @return 实际档位是否发生变化
+     */
+    public boolean setFloorQuality(int quality){
+        int oldQuality = getQuality();
+        mFloorQuality = Math.max(QUALITY_HIGH,Math.min(quality,QUALITY_MINIMAL));
+        return getQuality() != oldQuality;
+    }
+
+    public int getFloorQuality(){
+        return mFloorQuality;
+    }
+
+    /**
+     * 当前档位，数值越大画质越低
+     */
+    public int getQuality(){
+        return Math.max(mAdaptiveQuality,mFloorQuality);
+    }
+
+    /**
+     * @param budgetNanos 每帧的绘制预算，必须大于0
+     */
+    public void setBudgetNanos(long budgetNanos){
+        if(budgetNanos <= 0){
+            throw new IllegalArgumentException("budgetNanos must be positive");
+        }
+        mBudgetNanos = budgetNanos;
+        mOverFrames = 0;
+        mUnderFrames = 0;
+    }
+
+    public long getBudgetNanos(){
+        return mBudgetNanos;
+    }
+
+    /**
+     * 平滑后的每帧绘制耗时，还没有记录时为-1
+     */
+    public long getAverageNanos(){
+        return mAverageNanos;
+    }
+
+    /**
+     * 回到最高档位并清空统计，最低档位保持不变
+     * @return 实际档位是否发生变化
+     */
+    public boolean reset(){
+        mUpgradeFrames = UPGRADE_FRAMES;
+        mLastUpgrade = false;
+        return setAdaptiveQuality(QUALITY_HIGH);
+    }
+}
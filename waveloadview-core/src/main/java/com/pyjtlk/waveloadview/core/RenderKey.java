@@ -0,0 +1,66 @@
+package com.pyjtlk.waveloadview.core;
+
+/**
+ * 渲染参数的64位哈希，使用FNV-1a算法，结果与进程、设备无关，可以作为磁盘缓存的文件名
+ * 可以重复使用，调用{@link #reset}后重新计算，不分配内存
+ */
+public final class RenderKey {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private long mHash = FNV_OFFSET;
+
+    public RenderKey reset(){
+        mHash = FNV_OFFSET;
+        return this;
+    }
+
+    public RenderKey put(int value){
+        for(int i = 0;i < 4;i++){
+            mix(value >>> (i * 8));
+        }
+        return this;
+    }
+
+    public RenderKey put(long value){
+        put((int) value);
+        return put((int) (value >>> 32));
+    }
+
+    public RenderKey put(float value){
+        return put(Float.floatToIntBits(value));
+    }
+
+    public RenderKey put(boolean value){
+        mix(value ? 1 : 0);
+        return this;
+    }
+
+    /**
+     * 先写入长度再写入各字符，null与空字符串不同
+     */
+    public RenderKey put(String value){
+        if(value == null){
+            return put(-1);
+        }
+
+        put(value.length());
+        for(int i = 0;i < value.length();i++){
+            char c = value.charAt(i);
+            mix(c);
+            mix(c >>> 8);
+        }
+        return this;
+    }
+
+    /**
+     * 当前的哈希值
+     */
+    public long get(){
+        return mHash;
+    }
+
+    private void mix(int octet){
+        mHash = (mHash ^ (octet & 0xff)) * FNV_PRIME;
+    }
+}
@@ -0,0 +1,175 @@
+package com.pyjtlk.waveloadview.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按字节数限制大小的共享缓存，配置相同的多个控件共用同一份渲染结果
+ * 每个使用者通过{@link #acquire}或{@link #put}持有一次引用，不再使用时调用{@link #release}
+ * 还有引用的条目不会被淘汰，引用归零后保留在缓存中，总大小超过上限时从最久没有使用的开始淘汰
+ * 所有方法都是线程安全的
+ * @param <V> 缓存的值
+ */
+public abstract class SharedLruCache<V> {
+    private static final class Entry<V>{
+        private final V mValue;
+        private final int mSize;
+        private int mRefCount;
+
+        private Entry(V value,int size){
+            mValue = value;
+            mSize = size;
+        }
+    }
+
+    private final LinkedHashMap<Long,Entry<V>> mEntries = new LinkedHashMap<>(16,0.75f,true);
+    private long mMaxBytes;
+    private long mBytes;
+    private long mHits;
+    private long mMisses;
+    private long mEvictions;
+
+    /**
+     * @param maxBytes 缓存的总大小上限，单位为字节
+     */
+    protected SharedLruCache(long maxBytes){
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * 计算值占用的字节数
+     */
+    protected abstract int sizeOf(V value);
+
+    /**
+     * 值被淘汰后回调，此时已经没有使用者，可以释放资源，在调用淘汰的线程上执行
+     */
+    protected void onEvicted(V value){
+    }
+
+    /**
+     * 获取缓存的值并持有一次引用
+     * @param key 渲染参数的哈希
+     * @return 未命中时返回null
+     */
+    public synchronized V acquire(long key){
+        Entry<V> entry = mEntries.get(key);
+        if(entry == null){
+            mMisses++;
+            return null;
+        }
+
+        mHits++;
+        entry.mRefCount++;
+        return entry.mValue;
+    }
+
+    /**
+     * 再持有一次已经缓存的值，用于把值交给其他线程使用，不计入命中和未命中次数
+     * @param key 渲染参数的哈希
+     * @return 缓存中没有这个键时返回null
+     */
+    public synchronized V retain(long key){
+        Entry<V> entry = mEntries.get(key);
+        if(entry == null){
+            return null;
+        }
+
+        entry.mRefCount++;
+        return entry.mValue;
+    }
+
+    /**
+     * 放入一个值并持有一次引用，超过上限时淘汰没有引用的值
+     * @param key 渲染参数的哈希
+     * @param value 值
+     * @return 应该使用的值，已经有其他使用者放入相同的键时返回已有的值，调用者需要自行释放传入的值
+     */
+    public synchronized V put(long key,V value){
+        Entry<V> entry = mEntries.get(key);
+        if(entry == null){
+            entry = new Entry<>(value,sizeOf(value));
+            mEntries.put(key,entry);
+            mBytes += entry.mSize;
+        }
+        entry.mRefCount++;
+        trim(mMaxBytes);
+        return entry.mValue;
+    }
+
+    /**
+     * 释放一次引用
+     * @param key 渲染参数的哈希
+     */
+    public synchronized void release(long key){
+        Entry<V> entry = mEntries.get(key);
+        if(entry == null || entry.mRefCount == 0){
+            return;
+        }
+
+        entry.mRefCount--;
+        if(entry.mRefCount == 0){
+            trim(mMaxBytes);
+        }
+    }
+
+    /**
+     * 淘汰没有引用的值，直到总大小不超过maxBytes
+     * @param maxBytes 目标大小，为0时淘汰所有没有引用的值
+     */
+    public synchronized void trimToSize(long maxBytes){
+        trim(maxBytes);
+    }
+
+    /**
+     * 修改总大小上限
+     * @param maxBytes 总大小上限，单位为字节
+     */
+    public synchronized void setMaxBytes(long maxBytes){
+        mMaxBytes = maxBytes;
+        trim(maxBytes);
+    }
+
+    public synchronized long getMaxBytes(){
+        return mMaxBytes;
+    }
+
+    /**
+     * 当前缓存的总字节数，包括还有引用的值
+     */
+    public synchronized long getBytes(){
+        return mBytes;
+    }
+
+    public synchronized int getCount(){
+        return mEntries.size();
+    }
+
+    public synchronized long getHitCount(){
+        return mHits;
+    }
+
+    public synchronized long getMissCount(){
+        return mMisses;
+    }
+
+    public synchronized long getEvictionCount(){
+        return mEvictions;
+    }
+
+    private void trim(long maxBytes){
+        Iterator<Map.Entry<Long,Entry<V>>> iterator = mEntries.entrySet().iterator();
+        while(mBytes > maxBytes && iterator.hasNext()){
+            Entry<V> entry = iterator.next().getValue();
+            if(entry.mRefCount > 0){
+                continue;
+            }
+
+            iterator.remove();
+            mBytes -= entry.mSize;
+            mEvictions++;
+            onEvicted(entry.mValue);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.pyjtlk.waveloadview.core;
+
+/**
+ * 波形的绘制目标，由{@link WaveRenderer}调用，平台相关的绘制由实现类完成
+ * alpha为{@link #ALPHA_NONE}时表示不启用幻影效果，实现类不应修改画笔透明度
+ */
+public interface WaveCanvas {
+    /**
+     * 不设置透明度
+     */
+    int ALPHA_NONE = -1;
+
+    /**
+     * 绘制文本中的第index个字符
+     */
+    void drawText(int index,float x,float y,int alpha);
+
+    void drawCircle(float cx,float cy,float radius,int alpha);
+
+    void drawRect(float left,float top,float right,float bottom,int alpha);
+
+    void drawRoundRect(float left,float top,float right,float bottom,float radius,int alpha);
+
+    /**
+     * 绘制自定义图片元素
+     */
+    void drawImage(int left,int top,int right,int bottom,int alpha);
+
+    /**
+     * 交给自定义波绘制器绘制元素
+     */
+    void drawCustom(int left,int top,int right,int bottom,int alpha);
+}
@@ -0,0 +1,50 @@
+package com.pyjtlk.waveloadview.core;
+
+/**
+ * 按时钟计算波的步数，波的位置只由当前时间和起点决定，与回调的延迟无关
+ * 回调迟到时直接跳到应该到达的位置，不会越走越慢；起点相同的多个波始终保持同一相位
+ * 时间单位由调用者决定，只要当前时间、起点和每步间隔的单位一致即可
+ */
+public final class WaveClock {
+    private WaveClock(){
+    }
+
+    /**
+     * 从起点到当前时间经过的完整步数
+     * @param now 当前时间
+     * @param origin 起点
+     * @param period 每步间隔，必须大于0
+     * @return 步数，当前时间早于起点时为负数
+     */
+    public static long stepIndex(long now,long origin,long period){
+        long elapsed = now - origin;
+        long index = elapsed / period;
+        if(elapsed % period < 0){
+            index--;
+        }
+        return index;
+    }
+
+    /**
+     * 下一步的时间，总是晚于当前时间，并且与起点相差整数步
+     * @param now 当前时间
+     * @param origin 起点
+     * @param period 每步间隔，必须大于0
+     */
+    public static long nextStepTime(long now,long origin,long period){
+        return origin + (stepIndex(now,origin,period) + 1) * period;
+    }
+
+    /**
+     * 波在当前时间的位置
+     * @param now 当前时间
+     * @param origin 起点
+     * @param period 每步间隔，必须大于0
+     * @param elementsTotal 元素总数，波的位置以它为周期循环
+     * @return 波的位置，范围0~elementsTotal-1
+     */
+    public static int waveStartAt(long now,long origin,long period,int elementsTotal){
+        long position = stepIndex(now,origin,period) % elementsTotal;
+        return (int) (position < 0 ? position + elementsTotal : position);
+    }
+}
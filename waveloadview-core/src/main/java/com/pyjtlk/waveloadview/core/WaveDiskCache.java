@@ -0,0 +1,331 @@
+package com.pyjtlk.waveloadview.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 烘焙帧的磁盘缓存，每个配置的像素数据保存为一个文件，文件名为{@link RenderKey}计算的哈希
+ * 读取时通过内存映射直接交给位图，不需要额外复制，写入在后台线程进行，
+ * 通过{@link PixelSource}写入时连复制像素也在后台线程上，使用复用的缓冲区
+ * 文件总大小超过上限时按最近使用的顺序淘汰，使用顺序记录在写入线程上的索引中，不依赖文件系统
+ * 索引在第一次写入或读取时按文件的修改时间建立，读取时也会尽量更新修改时间，让下次启动时的顺序更准确
+ * 读取可以在任意线程调用，写入、索引和淘汰在同一个后台线程上串行执行
+ */
+public class WaveDiskCache {
+    private static final int MAGIC = 0x57564643;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final String SUFFIX = ".frames";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File mDir;
+    private final long mMaxBytes;
+    private final Executor mExecutor;
+    private SoftReference<ByteBuffer> mWriteBuffer;
+
+    /**
+     * 文件名到文件大小的索引，按使用顺序排列，最久没有使用的在最前面，只在写入线程上访问
+     */
+    private LinkedHashMap<String,Long> mIndex;
+    private long mIndexBytes;
+
+    /**
+     * 在写入线程上才读取的像素数据
+     */
+    public interface PixelSource{
+        /**
+         * 像素数据的大小
+         */
+        int getByteCount();
+
+        /**
+         * 把像素数据复制到缓冲区，从position开始写入，写入后position位于数据末尾
+         * @param buffer 缓冲区，剩余空间等于{@link #getByteCount()}
+         */
+        void copyTo(ByteBuffer buffer);
+
+        /**
+         * 复制完成或不需要写入时回调，之后不会再读取像素数据
+         */
+        void recycle();
+    }
+
+    /**
+     * @param dir 缓存目录，通常放在应用的缓存目录下
+     * @param maxBytes 缓存文件的总大小上限，单位为字节
+     */
+    public WaveDiskCache(File dir,long maxBytes){
+        this(dir,maxBytes,newWriteExecutor());
+    }
+
+    /**
+     * @param dir 缓存目录
+     * @param maxBytes 缓存文件的总大小上限，单位为字节
+     * @param executor 执行写入和淘汰的线程池，需要串行执行
+     */
+    public WaveDiskCache(File dir,long maxBytes,Executor executor){
+        mDir = dir;
+        mMaxBytes = maxBytes;
+        mExecutor = executor;
+    }
+
+    private static Executor newWriteExecutor(){
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1,1,1,TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r,"WaveDiskCache");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public long getMaxBytes(){
+        return mMaxBytes;
+    }
+
+    /**
+     * 读取像素数据
+     * @param key 配置的哈希
+     * @param byteCount 期望的像素数据大小，与文件中的不一致时视为未命中
+     * @return 只读的内存映射缓冲区，从像素数据开始，未命中或文件损坏时返回null
+     */
+    public ByteBuffer load(long key,int byteCount){
+        File file = fileOf(key);
+        if(!file.isFile()){
+            return null;
+        }
+
+        MappedByteBuffer buffer;
+        try(RandomAccessFile raf = new RandomAccessFile(file,"r")){
+            FileChannel channel = raf.getChannel();
+            if(channel.size() != HEADER_SIZE + (long) byteCount){
+                return null;
+            }
+            //映射建立后关闭文件不影响读取
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size());
+        }catch (IOException e){
+            return null;
+        }
+
+        if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || buffer.getInt() != byteCount || buffer.getLong() != key){
+            return null;
+        }
+
+        //很多应用存储的文件系统不支持修改时间，返回false，这时只有本进程内的索引记录使用顺序
+        file.setLastModified(System.currentTimeMillis());
+        final String name = file.getName();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                touch(name);
+            }
+        });
+        return buffer.slice();
+    }
+
+    /**
+     * 在后台线程写入像素数据，已有相同的文件时不写入
+     * @param key 配置的哈希
+     * @param pixels 像素数据，从position到limit的部分会被写入，调用后不能再修改
+     */
+    public void store(final long key,final ByteBuffer pixels){
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(key,pixels);
+            }
+        });
+    }
+
+    /**
+     * 在后台线程复制并写入像素数据，已有相同的文件时不复制
+     * 调用线程不需要复制像素，也不需要分配缓冲区，写入线程上的缓冲区会被复用
+     * @param key 配置的哈希
+     * @param source 像素数据，写入结束后调用{@link PixelSource#recycle()}
+     */
+    public void store(final long key,final PixelSource source){
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try{
+                    write(key,source);
+                }finally {
+                    source.recycle();
+                }
+            }
+        });
+    }
+
+    /**
+     * 删除所有缓存文件
+     */
+    public void clear(){
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                File files[] = listFiles();
+                for(File file : files){
+                    file.delete();
+                }
+                index().clear();
+                mIndexBytes = 0;
+            }
+        });
+    }
+
+    private void write(long key,PixelSource source){
+        if(fileOf(key).isFile()){
+            return;
+        }
+
+        //缓冲区只在写入线程上使用，内存紧张时可以被回收
+        int byteCount = source.getByteCount();
+        ByteBuffer buffer = mWriteBuffer != null ? mWriteBuffer.get() : null;
+        if(buffer == null || buffer.capacity() < byteCount){
+            buffer = ByteBuffer.allocate(byteCount);
+            mWriteBuffer = new SoftReference<>(buffer);
+        }
+        buffer.clear();
+        buffer.limit(byteCount);
+        source.copyTo(buffer);
+        buffer.flip();
+        write(key,buffer);
+    }
+
+    private void write(long key,ByteBuffer pixels){
+        File file = fileOf(key);
+        if(file.isFile() || (!mDir.isDirectory() && !mDir.mkdirs())){
+            return;
+        }
+
+        //先写到临时文件再改名，读取时不会看到写了一半的文件
+        File temp = new File(mDir,Long.toHexString(key) + TEMP_SUFFIX);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(pixels.remaining()).putLong(key);
+        header.flip();
+        try(RandomAccessFile raf = new RandomAccessFile(temp,"rw")){
+            FileChannel channel = raf.getChannel();
+            channel.truncate(0);
+            while(header.hasRemaining()){
+                channel.write(header);
+            }
+            while(pixels.hasRemaining()){
+                channel.write(pixels);
+            }
+        }catch (IOException e){
+            temp.delete();
+            return;
+        }
+
+        if(!temp.renameTo(file)){
+            temp.delete();
+            return;
+        }
+        addToIndex(file.getName(),file.length());
+        trim();
+    }
+
+    /**
+     * 按修改时间建立索引，之后的使用顺序由索引记录
+     */
+    private LinkedHashMap<String,Long> index(){
+        if(mIndex != null){
+            return mIndex;
+        }
+
+        mIndex = new LinkedHashMap<>(16,0.75f,true);
+        mIndexBytes = 0;
+        File files[] = listFiles();
+        final long lastModified[] = new long[files.length];
+        Integer order[] = new Integer[files.length];
+        for(int i = 0;i < files.length;i++){
+            lastModified[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order,new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Long.compare(lastModified[a],lastModified[b]);
+            }
+        });
+        for(Integer i : order){
+            long length = files[i].length();
+            mIndex.put(files[i].getName(),length);
+            mIndexBytes += length;
+        }
+        return mIndex;
+    }
+
+    private void addToIndex(String name,long length){
+        Long old = index().put(name,length);
+        mIndexBytes += length - (old != null ? old : 0);
+    }
+
+    /**
+     * 记录一次读取，读取的文件移到索引的末尾
+     */
+    private void touch(String name){
+        if(index().get(name) == null){
+            //其他实例写入的文件
+            File file = new File(mDir,name);
+            if(file.isFile()){
+                addToIndex(name,file.length());
+            }
+        }
+    }
+
+    /**
+     * 总大小超过上限时，从索引中最久没有使用的文件开始删除
+     */
+    private void trim(){
+        Iterator<Map.Entry<String,Long>> iterator = index().entrySet().iterator();
+        while(mIndexBytes > mMaxBytes && iterator.hasNext()){
+            Map.Entry<String,Long> entry = iterator.next();
+            File file = new File(mDir,entry.getKey());
+            if(file.delete() || !file.exists()){
+                mIndexBytes -= entry.getValue();
+                iterator.remove();
+            }
+        }
+    }
+
+    private File[] listFiles(){
+        File files[] = mDir.listFiles();
+        if(files == null){
+            return new File[0];
+        }
+
+        int count = 0;
+        for(File file : files){
+            if(file.getName().endsWith(SUFFIX)){
+                files[count++] = file;
+            }
+        }
+        return Arrays.copyOf(files,count);
+    }
+
+    private File fileOf(long key){
+        return new File(mDir,Long.toHexString(key) + SUFFIX);
+    }
+}
@@ -0,0 +1,201 @@
+package com.pyjtlk.waveloadview.core;
+
+/**
+ * 帧统计，记录布局耗时、各风格的绘制耗时，以及波每一步的实际间隔与设定间隔的偏差
+ * 时间单位都是纳秒，只能在同一个线程上记录和读取
+ */
+public class WaveFrameStats {
+    /**
+     * 风格的个数，风格编号为0~5，自定义绘制器为{@link #STYLE_CUSTOM}
+     */
+    public static final int STYLE_COUNT = 7;
+
+    /**
+     * 自定义绘制器的风格编号
+     */
+    public static final int STYLE_CUSTOM = 6;
+
+    private long mFrames;
+    private long mLastLayoutNanos;
+    private long mMaxLayoutNanos;
+    private long mTotalLayoutNanos;
+
+    private int mLastStyle = -1;
+    private long mLastDrawNanos;
+    private final long mDrawFrames[] = new long[STYLE_COUNT];
+    private final long mTotalDrawNanos[] = new long[STYLE_COUNT];
+    private final long mMaxDrawNanos[] = new long[STYLE_COUNT];
+
+    private long mLastTickNanos = -1;
+    private long mTicks;
+    private long mLastTickIntervalNanos;
+    private long mTotalTickIntervalNanos;
+    private long mMaxTickJitterNanos;
+    private long mLateTicks;
+    private long mSkippedTicks;
+
+    /**
+     * 记录一帧的布局耗时
+     * @param nanos 计算元素坐标的耗时
+     */
+    public void recordLayout(long nanos){
+        mFrames++;
+        mLastLayoutNanos = nanos;
+        mTotalLayoutNanos += nanos;
+        if(nanos > mMaxLayoutNanos){
+            mMaxLayoutNanos = nanos;
+        }
+    }
+
+    /**
+     * 记录一帧的绘制耗时
+     * @param style 风格编号
+     * @param nanos 绘制耗时
+     */
+    public void recordDraw(int style,long nanos){
+        if(style < 0 || style >= STYLE_COUNT){
+            return;
+        }
+
+        mLastStyle = style;
+        mLastDrawNanos = nanos;
+        mDrawFrames[style]++;
+        mTotalDrawNanos[style] += nanos;
+        if(nanos > mMaxDrawNanos[style]){
+            mMaxDrawNanos[style] = nanos;
+        }
+    }
+
+    /**
+     * 记录波移动了一次
+     * 实际间隔比设定间隔多出半步以上记为迟到，一次移动了多步时多出的步数记为跳过
+     * @param nowNanos 这次移动的时间
+     * @param expectedNanos 设定的每步间隔
+     * @param steps 这次移动的步数
+     */
+    public void recordTick(long nowNanos,long expectedNanos,long steps){
+        if(steps > 1){
+            mSkippedTicks += steps - 1;
+        }
+
+        long last = mLastTickNanos;
+        mLastTickNanos = nowNanos;
+        if(last < 0){
+            return;
+        }
+
+        long interval = nowNanos - last;
+        mTicks++;
+        mLastTickIntervalNanos = interval;
+        mTotalTickIntervalNanos += interval;
+
+        long expected = expectedNanos * Math.max(steps,1);
+        long jitter = Math.abs(interval - expected);
+        if(jitter > mMaxTickJitterNanos){
+            mMaxTickJitterNanos = jitter;
+        }
+
+        if(interval - expected > expectedNanos / 2){
+            mLateTicks++;
+        }
+    }
+
+    /**
+     * 动画暂停后重新开始时调用，暂停的时间不计入间隔
+     */
+    public void restartTicks(){
+        mLastTickNanos = -1;
+    }
+
+    /**
+     * 清空所有统计
+     */
+    public void reset(){
+        mFrames = 0;
+        mLastLayoutNanos = 0;
+        mMaxLayoutNanos = 0;
+        mTotalLayoutNanos = 0;
+        mLastStyle = -1;
+        mLastDrawNanos = 0;
+        for(int i = 0;i < STYLE_COUNT;i++){
+            mDrawFrames[i] = 0;
+            mTotalDrawNanos[i] = 0;
+            mMaxDrawNanos[i] = 0;
+        }
+        mLastTickNanos = -1;
+        mTicks = 0;
+        mLastTickIntervalNanos = 0;
+        mTotalTickIntervalNanos = 0;
+        mMaxTickJitterNanos = 0;
+        mLateTicks = 0;
+        mSkippedTicks = 0;
+    }
+
+    /**
+     * 已记录的帧数
+     */
+    public long getFrameCount(){
+        return mFrames;
+    }
+
+    public long getLastLayoutNanos(){
+        return mLastLayoutNanos;
+    }
+
+    public long getMaxLayoutNanos(){
+        return mMaxLayoutNanos;
+    }
+
+    public long getAverageLayoutNanos(){
+        return mFrames == 0 ? 0 : mTotalLayoutNanos / mFrames;
+    }
+
+    /**
+     * 最近一帧绘制的风格编号，还没有绘制过时为-1
+     */
+    public int getLastStyle(){
+        return mLastStyle;
+    }
+
+    public long getLastDrawNanos(){
+        return mLastDrawNanos;
+    }
+
+    public long getMaxDrawNanos(int style){
+        return mMaxDrawNanos[style];
+    }
+
+    public long getAverageDrawNanos(int style){
+        return mDrawFrames[style] == 0 ? 0 : mTotalDrawNanos[style] / mDrawFrames[style];
+    }
+
+    /**
+     * 已记录间隔的移动次数
+     */
+    public long getTickCount(){
+        return mTicks;
+    }
+
+    public long getLastTickIntervalNanos(){
+        return mLastTickIntervalNanos;
+    }
+
+    public long getAverageTickIntervalNanos(){
+        return mTicks == 0 ? 0 : mTotalTickIntervalNanos / mTicks;
+    }
+
+    /**
+     * 实际间隔与设定间隔的最大偏差
+     */
+    public long getMaxTickJitterNanos(){
+        return mMaxTickJitterNanos;
+    }
+
+    public long getLateTickCount(){
+        return mLateTicks;
+    }
+
+    public long getSkippedTickCount(){
+        return mSkippedTicks;
+    }
+}
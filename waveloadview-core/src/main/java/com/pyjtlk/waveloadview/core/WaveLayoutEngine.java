@@ -0,0 +1,610 @@
+package com.pyjtlk.waveloadview.core;
+
+/**
+ * 波形布局引擎，负责计算各元素的x、y坐标和透明度
+ * 不依赖Android平台，元素数据保存在基本类型数组中，计算过程不会产生对象分配
+ * 每帧只更新波离开和进入的那几列元素，开销只和波的宽度有关，与元素个数无关
+ */
+public class WaveLayoutEngine {
+    /**
+     * 帧表最多容纳的条目数，超过时退回逐帧计算
+     */
+    public static final int MAX_FRAME_TABLE_SIZE = 64 * 1024;
+
+    private int mLength;
+    private int mWaveLength;
+    private int mElementsTotal;
+    private int mDisplayStart;
+    private int mDisplayEnd;
+    private int mWaveStart;
+    private int mGhostAlphaMax;
+    private int mGhostAlphaMin;
+    private int mY[];
+    private int mAlpha[];
+    private int mLeft;
+    private int mElementWidth;
+    private int mStride;
+
+    /**
+     * 波形缓存，波上各元素升高的层数、透明度与参数相同的引擎共用，乘上元素高度后的偏移每个引擎各有一份
+     */
+    private WaveShape mShape = WaveShape.TRIANGLE;
+    private float mProfileLevel[];
+    private int mProfileAlpha[];
+    private float mProfileOffset[];
+    private float mProfileHeightOffset = -1;
+
+    /**
+     * 上次计算y坐标时波的位置和平坦状态的y坐标，为-1时需要全部重新计算
+     */
+    private int mLaidWaveStart = -1;
+    private int mLaidEvenY;
+
+    /**
+     * 帧表，每个相位一行，每个条目高24位为y坐标，低8位为透明度
+     */
+    private int mFrameTable[];
+    private boolean mFrameTableEnabled;
+    private boolean mFrameTableValid;
+    private int mFrameOffset = -1;
+    private int mTableWaveBottom;
+    private int mTableElementHeight;
+    private float mTableWaveOffset;
+
+    /**
+     * 插值参数，插值后的y坐标和透明度在读取时按波形缓存算出
+     */
+    private int mNextWaveStart;
+    private float mFraction;
+    private int mEvenY;
+    private boolean mInterpolated;
+
+    /**
+     * 连续模式的参数，y坐标是浮点数，可以落在像素之间
+     */
+    private float mCrest;
+    private float mHalfWidth;
+    private float mPeakOffset;
+    private float mContinuousEvenY;
+    private float mSamples[];
+    private boolean mContinuous;
+
+    /**
+     * @param length 显示的元素个数
+     * @param waveLength 波的宽度
+     */
+    public WaveLayoutEngine(int length,int waveLength){
+        setup(length,waveLength);
+    }
+
+    /**
+     * 重新设置元素个数和波的宽度，波回到起点
+     * 元素数组按容量分配，容量足够时不会重新分配，容量不够时按1.5倍扩容
+     * @param length 显示的元素个数
+     * @param waveLength 波的宽度
+     */
+    public void setup(int length,int waveLength){
+        invalidateFrameTable();
+        mInterpolated = false;
+        mContinuous = false;
+        mLength = length;
+        mWaveLength = waveLength;
+        mElementsTotal = mLength + (mWaveLength - 1) * 2;
+        mDisplayStart = mWaveLength - 1;
+        mDisplayEnd = mDisplayStart + mLength;
+        mWaveStart = 0;
+
+        mLaidWaveStart = -1;
+        if(mY == null || mY.length < mElementsTotal){
+            reserveElements(mY == null ? mElementsTotal : Math.max(mElementsTotal,mY.length * 3 / 2));
+        }
+        if(mProfileOffset == null || mProfileOffset.length < mWaveLength){
+            reserveWave(mProfileOffset == null ? mWaveLength : Math.max(mWaveLength,mProfileOffset.length * 3 / 2));
+        }
+
+        computeProfile();
+    }
+
+    /**
+     * 预留容量，之后元素个数和波的宽度在容量以内变化时不会再分配数组
+     * @param length 最大的元素个数
+     * @param waveLength 最大的波的宽度
+     */
+    public void reserve(int length,int waveLength){
+        int elementsTotal = length + (waveLength - 1) * 2;
+        if(mY.length < elementsTotal){
+            reserveElements(elementsTotal);
+        }
+        if(mProfileOffset.length < waveLength){
+            reserveWave(waveLength);
+        }
+    }
+
+    private void reserveElements(int capacity){
+        mY = new int[capacity];
+        mAlpha = new int[capacity];
+        mLaidWaveStart = -1;
+    }
+
+    private void reserveWave(int capacity){
+        mProfileOffset = new float[capacity];
+        mProfileHeightOffset = -1;
+    }
+
+    /**
+     * 设置波形，默认为{@link WaveShape#TRIANGLE}
+     * @param shape 波形
+     */
+    public void setWaveShape(WaveShape shape){
+        if(shape == null || shape == mShape){
+            return;
+        }
+
+        mShape = shape;
+        computeProfile();
+        invalidateFrameTable();
+    }
+
+    /**
+     * 获取波形
+     */
+    public WaveShape getWaveShape(){
+        return mShape;
+    }
+
+    /**
+     * 启用帧表，启用后各相位的y坐标和透明度只计算一次，之后每帧只需查表
+     * 元素总数乘以显示个数超过{@link #MAX_FRAME_TABLE_SIZE}时依然逐帧计算
+     * @param enable 是否启用帧表
+     */
+    public void setFrameTableEnabled(boolean enable){
+        mFrameTableEnabled = enable;
+        if(!enable){
+            mFrameTable = null;
+            mFrameTableValid = false;
+            mFrameOffset = -1;
+        }
+    }
+
+    /**
+     * 是否启用了帧表
+     */
+    public boolean isFrameTableEnabled(){
+        return mFrameTableEnabled;
+    }
+
+    /**
+     * 预先生成帧表，可以在尺寸确定后调用，避免在第一帧时生成
+     * @param waveBottom 波的底部
+     * @param elementHeight 元素高度
+     * @param waveOffset 波形高度系数
+     * @return 帧表是否可用
+     */
+    public boolean buildFrameTable(int waveBottom,int elementHeight,float waveOffset){
+        if(!mFrameTableEnabled){
+            return false;
+        }
+
+        if(mFrameTableValid
+                && mTableWaveBottom == waveBottom
+                && mTableElementHeight == elementHeight
+                && mTableWaveOffset == waveOffset){
+            return true;
+        }
+
+        int tableSize = mElementsTotal * mLength;
+        if(tableSize > MAX_FRAME_TABLE_SIZE){
+            mFrameTable = null;
+            mFrameTableValid = false;
+            return false;
+        }
+
+        if(mFrameTable == null || mFrameTable.length < tableSize){
+            mFrameTable = new int[tableSize];
+        }
+
+        int waveStart = mWaveStart;
+        for(int phase = 0;phase < mElementsTotal;phase++){
+            mWaveStart = phase;
+            computeElementsY(waveBottom,elementHeight,waveOffset);
+
+            int row = phase * mLength;
+            for(int i = 0;i < mLength;i++){
+                mFrameTable[row + i] = (mY[mDisplayStart + i] << 8) | mAlpha[mDisplayStart + i];
+            }
+        }
+        mWaveStart = waveStart;
+
+        mTableWaveBottom = waveBottom;
+        mTableElementHeight = elementHeight;
+        mTableWaveOffset = waveOffset;
+        mFrameTableValid = true;
+        return true;
+    }
+
+    private void invalidateFrameTable(){
+        mFrameTableValid = false;
+        mFrameOffset = -1;
+    }
+
+    /**
+     * 设置幻影效果透明度，并重新计算波上各元素的透明度
+     * @param minAlpha 透明度下限
+     * @param maxAlpha 透明度上限
+     */
+    public void setGhostAlpha(int minAlpha,int maxAlpha){
+        mGhostAlphaMin = minAlpha;
+        mGhostAlphaMax = maxAlpha;
+        computeProfile();
+        invalidateFrameTable();
+    }
+
+    /**
+     * 取得波形的轮廓，参数相同的引擎共用同一份，只在第一次用到时求值
+     */
+    private void computeProfile(){
+        WaveShape.Profile profile = mShape.profile(mWaveLength,mGhostAlphaMin,mGhostAlphaMax);
+        mProfileLevel = profile.mLevels;
+        mProfileAlpha = profile.mAlphas;
+        mProfileHeightOffset = -1;
+    }
+
+    /**
+     * 计算控件包裹内容时的宽度，不包括内边距
+     * @param length 显示的元素个数
+     * @param elementWidth 元素宽度
+     * @param interval 元素间隔
+     * @return 内容宽度
+     */
+    public static int measureWidth(int length,int elementWidth,int interval){
+        return length * elementWidth + (length - 1) * interval;
+    }
+
+    /**
+     * 计算控件包裹内容时的高度，不包括内边距
+     * @param waveLength 波的宽度
+     * @param elementHeight 元素高度
+     * @param waveOffset 波形高度系数
+     * @return 内容高度
+     */
+    public static int measureHeight(int waveLength,int elementHeight,float waveOffset){
+        return (int) (elementHeight + WaveShape.peakLevel(waveLength) * elementHeight * waveOffset);
+    }
+
+    /**
+     * 按可用宽度计算能放下的元素个数
+     * @param availableWidth 可用宽度，不包括内边距
+     * @param elementWidth 元素宽度
+     * @param interval 元素间隔
+     * @return 元素个数
+     */
+    public static int fitLength(int availableWidth,int elementWidth,int interval){
+        int stride = elementWidth + interval;
+        if(stride <= 0 || availableWidth < elementWidth){
+            return 0;
+        }
+        return (availableWidth + interval) / stride;
+    }
+
+    /**
+     * 准备好各元素的x坐标，x坐标按元素序号直接算出，不需要逐个保存
+     * @param left 第一个元素的左边界
+     * @param elementWidth 元素宽度
+     * @param interval 元素间隔
+     */
+    public void prepareElementsX(int left,int elementWidth,int interval){
+        mLeft = left;
+        mElementWidth = elementWidth;
+        mStride = elementWidth + interval;
+    }
+
+    /**
+     * 准备好各元素的y坐标，启用帧表时只需定位到当前相位所在的行
+     * @param waveBottom 波的底部
+     * @param elementHeight 元素高度
+     * @param waveOffset 波形高度系数
+     */
+    public void prepareElementsY(int waveBottom,int elementHeight,float waveOffset){
+        mInterpolated = false;
+        mContinuous = false;
+        if(buildFrameTable(waveBottom,elementHeight,waveOffset)){
+            mFrameOffset = mWaveStart * mLength;
+            return;
+        }
+
+        mFrameOffset = -1;
+        computeElementsY(waveBottom,elementHeight,waveOffset);
+    }
+
+    /**
+     * 在当前相位和下一个相位之间插值，需要在{@link #prepareElementsY}之后调用
+     * 只适用于波按默认方式移动的情况，插值结果在读取时计算，这里不需要逐个元素处理
+     * @param fraction 距离下一个相位的进度，范围0~1，为0时不插值
+     * @param waveBottom 波的底部
+     * @param elementHeight 元素高度
+     * @param waveOffset 波形高度系数
+     */
+    public void interpolate(float fraction,int waveBottom,int elementHeight,float waveOffset){
+        mInterpolated = false;
+        if(fraction <= 0f){
+            return;
+        }
+
+        updateProfileOffset(elementHeight * waveOffset);
+        mEvenY = waveBottom - elementHeight;
+        mNextWaveStart = mWaveStart + 1 >= mElementsTotal ? 0 : mWaveStart + 1;
+        mFraction = fraction;
+        mInterpolated = true;
+    }
+
+    /**
+     * 连续模式，波的位置是浮点数，元素高度按波形的采样表计算，波可以停在两个元素之间
+     * 波峰高度和波的宽度与逐步模式相同，波从右侧离开时从左侧平滑地重新进入
+     * 调用后{@link #getWaveStart}为phase的整数部分
+     * @param phase 波的位置，范围0~{@link #getElementsTotal()}，超出时取余
+     * @param waveBottom 波的底部
+     * @param elementHeight 元素高度
+     * @param waveOffset 波形高度系数
+     */
+    public void prepareElementsContinuous(float phase,int waveBottom,int elementHeight,float waveOffset){
+        mInterpolated = false;
+        mFrameOffset = -1;
+
+        phase %= mElementsTotal;
+        if(phase < 0){
+            phase += mElementsTotal;
+        }
+        mWaveStart = (int) phase;
+
+        mSamples = mShape.samples();
+        mHalfWidth = (mWaveLength + 1) / 2f;
+        mCrest = phase + (mWaveLength - 1) / 2f - mDisplayStart;
+        mPeakOffset = WaveShape.peakLevel(mWaveLength) * elementHeight * waveOffset;
+        mContinuousEvenY = waveBottom - elementHeight;
+        mContinuous = true;
+    }
+
+    /**
+     * 连续模式下第index个显示元素的升高程度，范围0~1
+     */
+    private float continuousLevel(int index){
+        //波从右侧离开时，从左侧进入的是上一圈的同一个波
+        float distance = Math.min(Math.abs(index - mCrest),Math.abs(index - mCrest + mElementsTotal));
+        if(distance >= mHalfWidth){
+            return 0;
+        }
+        return mSamples[(int) (distance / mHalfWidth * WaveShape.SAMPLE_COUNT + 0.5f)];
+    }
+
+    /**
+     * 计算各元素的y坐标，波上的元素查波形缓存，其余为平坦状态
+     * 波进出显示区域时只有一部分可见，可见部分依然按它在波中的位置查表
+     * 平坦区在两帧之间不变，只需把上一帧波覆盖的列恢复平坦，再写入这一帧的波
+     */
+    private void computeElementsY(int waveBottom,int elementHeight,float waveOffset){
+        updateProfileOffset(elementHeight * waveOffset);
+
+        int evenY = waveBottom - elementHeight;
+        if(mLaidWaveStart < 0 || mLaidEvenY != evenY){
+            fillEven(mDisplayStart,mDisplayEnd - 1,evenY);
+        }else if(mLaidWaveStart != mWaveStart){
+            fillEven(Math.max(mLaidWaveStart,mDisplayStart),Math.min(mLaidWaveStart + mWaveLength,mDisplayEnd) - 1,evenY);
+        }else{
+            return;
+        }
+
+        int waveFrom = Math.max(mWaveStart,mDisplayStart);
+        int waveTo = Math.min(mWaveStart + mWaveLength,mDisplayEnd);
+        for(int i = waveFrom;i < waveTo;i++){
+            mY[i] = (int) (evenY - mProfileOffset[i - mWaveStart]);
+            mAlpha[i] = mProfileAlpha[i - mWaveStart];
+        }
+        mLaidWaveStart = mWaveStart;
+        mLaidEvenY = evenY;
+    }
+
+    /**
+     * 按元素高度乘以波形高度系数更新波上各元素的偏移，只在高度变化时计算
+     */
+    private void updateProfileOffset(float elementHeightOffset){
+        if(elementHeightOffset == mProfileHeightOffset){
+            return;
+        }
+
+        for(int i = 0;i < mWaveLength;i++){
+            mProfileOffset[i] = mProfileLevel[i] * elementHeightOffset;
+        }
+        mProfileHeightOffset = elementHeightOffset;
+        mLaidWaveStart = -1;
+    }
+
+    /**
+     * 把[from,to]区间内的元素设为平坦状态
+     */
+    private void fillEven(int from,int to,int evenY){
+        for(int i = from;i <= to;i++){
+            mY[i] = evenY;
+            mAlpha[i] = mGhostAlphaMin;
+        }
+    }
+
+    /**
+     * 波按默认方式向右移动一步
+     */
+    public void moveWave(){
+        setWaveStart(mWaveStart + 1);
+    }
+
+    /**
+     * 设置波的位置，超出范围时回到起点
+     * @param waveStart 波的位置
+     */
+    public void setWaveStart(int waveStart){
+        if(waveStart >= mElementsTotal || waveStart < 0){
+            waveStart = 0;
+        }
+        mWaveStart = waveStart;
+    }
+
+    /**
+     * 把波峰移到第index个显示元素上，偶数宽度时波峰是中间两个元素中靠左的一个
+     * @param index 显示元素的序号
+     */
+    public void setCrest(int index){
+        setWaveStart(index + mDisplayStart - (mWaveLength - 1) / 2);
+    }
+
+    /**
+     * 连续模式下波峰落在index处时对应的波的位置，可以传给{@link #prepareElementsContinuous}
+     * @param index 显示元素的序号，可以是小数
+     * @return 波的位置
+     */
+    public float getPhaseForCrest(float index){
+        return index + mDisplayStart - (mWaveLength - 1) / 2f;
+    }
+
+    /**
+     * 获取波的位置
+     * @return 波的位置
+     */
+    public int getWaveStart(){
+        return mWaveStart;
+    }
+
+    /**
+     * 获取第index个显示元素的x坐标
+     */
+    public int getX(int index){
+        return mLeft + mStride * index;
+    }
+
+    /**
+     * 获取第index个显示元素的y坐标
+     */
+    public int getY(int index){
+        if(mContinuous){
+            return Math.round(getTop(index));
+        }
+
+        int y = laidY(index);
+        if(mInterpolated){
+            y += Math.round((profileY(index,mNextWaveStart) - y) * mFraction);
+        }
+        return y;
+    }
+
+    /**
+     * 获取第index个显示元素的顶部，连续模式下可以落在像素之间
+     */
+    public float getTop(int index){
+        if(mContinuous){
+            return mContinuousEvenY - continuousLevel(index) * mPeakOffset;
+        }
+        return getY(index);
+    }
+
+    /**
+     * 获取第index个显示元素的透明度
+     */
+    public int getAlpha(int index){
+        if(mContinuous){
+            return mGhostAlphaMin + (int) (continuousLevel(index) * (mGhostAlphaMax - mGhostAlphaMin));
+        }
+
+        int alpha = laidAlpha(index);
+        if(mInterpolated){
+            alpha += Math.round((profileAlpha(index,mNextWaveStart) - alpha) * mFraction);
+        }
+        return alpha;
+    }
+
+    private int laidY(int index){
+        if(mFrameOffset >= 0){
+            return mFrameTable[mFrameOffset + index] >> 8;
+        }
+        return mY[mDisplayStart + index];
+    }
+
+    private int laidAlpha(int index){
+        if(mFrameOffset >= 0){
+            return mFrameTable[mFrameOffset + index] & 0xFF;
+        }
+        return mAlpha[mDisplayStart + index];
+    }
+
+    /**
+     * 波在waveStart时第index个显示元素的y坐标，直接查波形缓存
+     */
+    private int profileY(int index,int waveStart){
+        int pos = mDisplayStart + index - waveStart;
+        if(pos < 0 || pos >= mWaveLength){
+            return mEvenY;
+        }
+        return (int) (mEvenY - mProfileOffset[pos]);
+    }
+
+    private int profileAlpha(int index,int waveStart){
+        int pos = mDisplayStart + index - waveStart;
+        if(pos < 0 || pos >= mWaveLength){
+            return mGhostAlphaMin;
+        }
+        return mProfileAlpha[pos];
+    }
+
+    /**
+     * 获取右边界在x右侧的第一个显示元素，需要在{@link #prepareElementsX}之后调用
+     * @param x 裁剪区域的左边界
+     * @return 元素序号，可能等于{@link #getLength()}，表示没有元素
+     */
+    public int getFirstColumnAfter(int x){
+        int n = x - mLeft - mElementWidth;
+        if(n < 0 || mStride <= 0){
+            return 0;
+        }
+        return Math.min(n / mStride + 1,mLength);
+    }
+
+    /**
+     * 获取左边界在x左侧的最后一个显示元素，需要在{@link #prepareElementsX}之后调用
+     * @param x 裁剪区域的右边界
+     * @return 元素序号，可能为-1，表示没有元素
+     */
+    public int getLastColumnBefore(int x){
+        int n = x - mLeft;
+        if(n <= 0){
+            return -1;
+        }
+        if(mStride <= 0){
+            return mLength - 1;
+        }
+        return Math.min((n - 1) / mStride,mLength - 1);
+    }
+
+    /**
+     * 获取显示的元素个数
+     */
+    public int getLength(){
+        return mLength;
+    }
+
+    /**
+     * 获取波的宽度
+     */
+    public int getWaveLength(){
+        return mWaveLength;
+    }
+
+    /**
+     * 获取元素总数，包括两侧用于波进出的不可见元素
+     */
+    public int getElementsTotal(){
+        return mElementsTotal;
+    }
+
+    /**
+     * 获取第一个显示元素在全部元素中的位置
+     */
+    public int getDisplayStart(){
+        return mDisplayStart;
+    }
+}
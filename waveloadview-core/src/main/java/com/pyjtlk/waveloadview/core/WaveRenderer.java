@@ -0,0 +1,293 @@
+package com.pyjtlk.waveloadview.core;
+
+/**
+ * 波形渲染器，根据{@link WaveLayoutEngine}计算好的元素位置，按各风格把元素交给{@link WaveCanvas}绘制
+ * 不依赖Android平台，可以在JVM上测试和做基准测试
+ */
+public class WaveRenderer {
+    /**
+     * 噪声波每个元素默认的竖条数
+     */
+    public static final int DEFAULT_NOISE_BARS = 4;
+
+    private int mImageSize;
+    private int mRectRadius;
+    private int mWaveBottom;
+    private int mTextHeight;
+    private float mTextBaseline;
+    private boolean ghostEffect;
+    private boolean mClipped;
+    private int mClipLeft;
+    private int mClipTop;
+    private int mClipRight;
+    private int mClipBottom;
+    private int mFrom;
+    private int mTo;
+    private int mNoiseBars = DEFAULT_NOISE_BARS;
+    private long mNoiseSeed = 0x2545F4914F6CDD1DL;
+    private float mAmplitudes[];
+
+    /**
+     * 设置元素尺寸
+     * @param imageSize 元素尺寸
+     */
+    public void setImageSize(int imageSize){
+        mImageSize = imageSize;
+    }
+
+    /**
+     * 设置长方形风格的圆角半径
+     * @param rectRadius 圆角半径
+     */
+    public void setRectRadius(int rectRadius){
+        mRectRadius = rectRadius;
+    }
+
+    /**
+     * 设置波的底部
+     * @param waveBottom 波的底部
+     */
+    public void setWaveBottom(int waveBottom){
+        mWaveBottom = waveBottom;
+    }
+
+    /**
+     * 设置文本风格的元素高度
+     * @param textHeight 元素高度
+     */
+    public void setTextHeight(int textHeight){
+        mTextHeight = textHeight;
+    }
+
+    /**
+     * 设置文本基线相对元素顶部的偏移
+     * @param textBaseline 基线偏移
+     */
+    public void setTextBaseline(float textBaseline){
+        mTextBaseline = textBaseline;
+    }
+
+    /**
+     * 是否启用幻影效果
+     * @param enable 是否启用幻影效果
+     */
+    public void setGhostEffect(boolean enable){
+        ghostEffect = enable;
+    }
+
+    /**
+     * 设置噪声波每个元素的竖条数，竖条越少绘制越快，竖条宽度和间隔随之变宽
+     * @param bars 竖条数，至少为1
+     */
+    public void setNoiseBars(int bars){
+        mNoiseBars = Math.max(bars,1);
+    }
+
+    public int getNoiseBars(){
+        return mNoiseBars;
+    }
+
+    /**
+     * 设置噪声波的振幅历史，最新的振幅在最后，对应最右边的竖条，每个元素有{@link #getNoiseBars()}条竖条
+     * 为null时竖条高度随机
+     * @param amplitudes 振幅历史，范围0~1
+     */
+    public void setAmplitudes(float amplitudes[]){
+        mAmplitudes = amplitudes;
+    }
+
+    /**
+     * 设置裁剪区域，完全在区域外的元素不会绘制
+     */
+    public void setClip(int left,int top,int right,int bottom){
+        mClipped = true;
+        mClipLeft = left;
+        mClipTop = top;
+        mClipRight = right;
+        mClipBottom = bottom;
+    }
+
+    /**
+     * 取消裁剪区域
+     */
+    public void clearClip(){
+        mClipped = false;
+    }
+
+    /**
+     * 根据裁剪区域计算需要绘制的元素范围，元素等距排列，不需要逐个判断
+     */
+    private void computeColumns(WaveLayoutEngine engine){
+        if(mClipped){
+            mFrom = engine.getFirstColumnAfter(mClipLeft);
+            mTo = engine.getLastColumnBefore(mClipRight);
+        }else{
+            mFrom = 0;
+            mTo = engine.getLength() - 1;
+        }
+    }
+
+    /**
+     * 元素在竖直方向上是否与裁剪区域相交
+     */
+    private boolean isVisible(float top,float bottom){
+        return !mClipped || (top < mClipBottom && bottom > mClipTop);
+    }
+
+    private int alphaOf(WaveLayoutEngine engine,int index){
+        return ghostEffect ? engine.getAlpha(index) : WaveCanvas.ALPHA_NONE;
+    }
+
+    /**
+     * 绘制文本风格的波
+     */
+    public void drawText(WaveLayoutEngine engine,WaveCanvas canvas){
+        computeColumns(engine);
+        for(int i = mFrom;i <= mTo;i++){
+            float y = engine.getTop(i);
+            if(!isVisible(y,y + mTextHeight)){
+                continue;
+            }
+            canvas.drawText(i,
+                    engine.getX(i),
+                    y + mTextBaseline,
+                    alphaOf(engine,i));
+        }
+    }
+
+    /**
+     * 绘制圆点风格的波
+     */
+    public void drawCircles(WaveLayoutEngine engine,WaveCanvas canvas){
+        int radius = mImageSize / 2;
+        computeColumns(engine);
+        for(int i = mFrom;i <= mTo;i++){
+            float y = engine.getTop(i);
+            if(!isVisible(y,y + mImageSize)){
+                continue;
+            }
+            canvas.drawCircle(engine.getX(i) + radius,
+                    y + radius,
+                    radius,
+                    alphaOf(engine,i));
+        }
+    }
+
+    /**
+     * 绘制正方形风格的波
+     */
+    public void drawSquares(WaveLayoutEngine engine,WaveCanvas canvas){
+        computeColumns(engine);
+        for(int i = mFrom;i <= mTo;i++){
+            int x = engine.getX(i);
+            float y = engine.getTop(i);
+            if(!isVisible(y,y + mImageSize)){
+                continue;
+            }
+            if(mRectRadius > 0){
+                canvas.drawRoundRect(x,y,x + mImageSize,y + mImageSize,10,alphaOf(engine,i));
+            }else{
+                canvas.drawRect(x,y,x + mImageSize,y + mImageSize,alphaOf(engine,i));
+            }
+        }
+    }
+
+    /**
+     * 绘制长方形风格的波
+     */
+    public void drawRects(WaveLayoutEngine engine,WaveCanvas canvas){
+        computeColumns(engine);
+        for(int i = mFrom;i <= mTo;i++){
+            int x = engine.getX(i);
+            float y = engine.getTop(i);
+            if(!isVisible(y,mWaveBottom)){
+                continue;
+            }
+            if(mRectRadius > 0){
+                canvas.drawRoundRect(x,y,x + mImageSize,mWaveBottom,mRectRadius,alphaOf(engine,i));
+            }else{
+                canvas.drawRect(x,y,x + mImageSize,mWaveBottom,alphaOf(engine,i));
+            }
+        }
+    }
+
+    /**
+     * 绘制噪声波，每个元素由{@link #getNoiseBars()}条竖条组成，竖条高度由振幅决定，没有振幅时随机
+     */
+    public void drawNoise(WaveLayoutEngine engine,WaveCanvas canvas){
+        int barsPerElement = mNoiseBars;
+        int nosieWidth = mImageSize / (barsPerElement * 2);
+        int bars = engine.getLength() * barsPerElement;
+        computeColumns(engine);
+        for(int i = mFrom;i <= mTo;i++){
+            int x = engine.getX(i);
+            float y = engine.getTop(i);
+            //竖条最高到y的四分之一处
+            if(!isVisible((int) (y * 0.25),mWaveBottom)){
+                continue;
+            }
+            int alpha = alphaOf(engine,i);
+            for(int j = 0;j < barsPerElement;j++){
+                int height = (int) (y * 0.25 + y * 0.75 * noiseLevel(i * barsPerElement + j,bars));
+                int left = x + nosieWidth * 2 * j;
+                canvas.drawRect(left,height,left + nosieWidth,mWaveBottom,alpha);
+            }
+        }
+    }
+
+    /**
+     * 竖条顶部在0.25y~y之间的位置，0最高，1最低
+     * @param bar 竖条序号
+     * @param bars 竖条总数
+     */
+    private double noiseLevel(int bar,int bars){
+        if(mAmplitudes == null){
+            return nextNoise();
+        }
+
+        int index = mAmplitudes.length - bars + bar;
+        return index >= 0 ? 1 - mAmplitudes[index] : 1;
+    }
+
+    /**
+     * xorshift随机数，范围[0,1)，比Math.random()更快，也不需要同步
+     */
+    private double nextNoise(){
+        long x = mNoiseSeed;
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        mNoiseSeed = x;
+        return (x >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * 绘制自定义图案的波
+     */
+    public void drawImages(WaveLayoutEngine engine,WaveCanvas canvas){
+        computeColumns(engine);
+        for(int i = mFrom;i <= mTo;i++){
+            int x = engine.getX(i);
+            int y = engine.getY(i);
+            if(!isVisible(y,y + mImageSize)){
+                continue;
+            }
+            canvas.drawImage(x,y,x + mImageSize,y + mImageSize,alphaOf(engine,i));
+        }
+    }
+
+    /**
+     * 绘制自定义波，元素区域从元素顶部一直到波的底部
+     */
+    public void drawCustom(WaveLayoutEngine engine,WaveCanvas canvas){
+        computeColumns(engine);
+        for(int i = mFrom;i <= mTo;i++){
+            int x = engine.getX(i);
+            int y = engine.getY(i);
+            if(!isVisible(y,mWaveBottom)){
+                continue;
+            }
+            canvas.drawCustom(x,y,x + mImageSize,mWaveBottom,alphaOf(engine,i));
+        }
+    }
+}
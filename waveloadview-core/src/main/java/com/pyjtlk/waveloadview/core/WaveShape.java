@@ -0,0 +1,174 @@
+package com.pyjtlk.waveloadview.core;
+
+/**
+ * 波形，描述波上各元素相对波峰的升高程度
+ * 波形只在波的宽度、透明度范围等参数变化时求值一次，结果缓存在波形中，参数相同的{@link WaveLayoutEngine}共用，每帧只需查表
+ * 自定义波形只需继承本类并实现{@link #amplitude}
+ */
+public abstract class WaveShape {
+    /**
+     * 连续模式使用的采样表精度
+     */
+    static final int SAMPLE_COUNT = 1024;
+
+    /**
+     * 每个波形缓存的轮廓个数，超出后按放入的顺序替换
+     */
+    private static final int PROFILE_CACHE_SIZE = 8;
+
+    /**
+     * 三角形，元素逐个升高一层，默认波形
+     */
+    public static final WaveShape TRIANGLE = new WaveShape() {
+        @Override
+        public float amplitude(float distance) {
+            return 1 - distance;
+        }
+
+        @Override
+        void computeProfile(int waveLength,int alphaMin,int alphaMax,float levels[],int alphas[]) {
+            int halfLen = waveLength % 2 == 0 ? waveLength / 2 + 1 : waveLength / 2;
+            int alphaInterval = (alphaMax - alphaMin) / (halfLen + 1);
+
+            for(int i = 0;i <= halfLen && i < waveLength;i++) {
+                alphas[i] = alphas[waveLength - i - 1] = alphaMin + (i + 1) * alphaInterval;
+            }
+
+            for(int i = 0;i < waveLength;i++){
+                levels[i] = Math.min(i + 1,waveLength - i);
+            }
+            alphas[(waveLength - 1) / 2] = alphaMax;
+        }
+    };
+
+    /**
+     * 升余弦，两侧平缓，波峰圆润
+     */
+    public static final WaveShape SINE = new WaveShape() {
+        @Override
+        public float amplitude(float distance) {
+            return (float) ((1 + Math.cos(Math.PI * distance)) / 2);
+        }
+    };
+
+    /**
+     * 高斯曲线，波峰尖锐，两侧拖尾
+     */
+    public static final WaveShape GAUSSIAN = new WaveShape() {
+        @Override
+        public float amplitude(float distance) {
+            return (float) Math.exp(-distance * distance / 0.32);
+        }
+    };
+
+    /**
+     * 方波，波上的元素都升到波峰高度
+     */
+    public static final WaveShape SQUARE = new WaveShape() {
+        @Override
+        public float amplitude(float distance) {
+            return 1;
+        }
+    };
+
+    private volatile float mSamples[];
+    private final Profile mProfiles[] = new Profile[PROFILE_CACHE_SIZE];
+    private int mNextProfile;
+
+    /**
+     * 波上各元素升高的层数和透明度，生成后不再修改，可以在多个引擎和线程间共用
+     */
+    static final class Profile{
+        final int mWaveLength;
+        final int mAlphaMin;
+        final int mAlphaMax;
+        final float mLevels[];
+        final int mAlphas[];
+
+        private Profile(int waveLength,int alphaMin,int alphaMax){
+            mWaveLength = waveLength;
+            mAlphaMin = alphaMin;
+            mAlphaMax = alphaMax;
+            mLevels = new float[waveLength];
+            mAlphas = new int[waveLength];
+        }
+    }
+
+    /**
+     * 计算到波峰距离为distance处的升高程度
+     * @param distance 到波峰的距离，以波的半宽归一化，范围0~1，0为波峰
+     * @return 升高程度，范围0~1，1为波峰高度
+     */
+    public abstract float amplitude(float distance);
+
+    /**
+     * 计算波上各元素升高的层数和透明度，波峰高度与{@link WaveLayoutEngine#measureHeight}一致
+     * @param waveLength 波的宽度
+     * @param alphaMin 透明度下限
+     * @param alphaMax 透明度上限
+     * @param levels 输出，各元素升高的层数，每层为元素高度乘以波形高度系数
+     * @param alphas 输出，各元素的透明度
+     */
+    void computeProfile(int waveLength,int alphaMin,int alphaMax,float levels[],int alphas[]){
+        int peakLevel = peakLevel(waveLength);
+        float halfWidth = (waveLength + 1) / 2f;
+        float crest = (waveLength - 1) / 2f;
+
+        for(int i = 0;i < waveLength;i++){
+            float amplitude = clamp(amplitude(Math.abs(i - crest) / halfWidth));
+            levels[i] = amplitude * peakLevel;
+            alphas[i] = alphaMin + (int) (amplitude * (alphaMax - alphaMin));
+        }
+    }
+
+    /**
+     * 获取轮廓，参数相同时返回同一个对象，命中时不分配内存
+     * @param waveLength 波的宽度
+     * @param alphaMin 透明度下限
+     * @param alphaMax 透明度上限
+     */
+    synchronized Profile profile(int waveLength,int alphaMin,int alphaMax){
+        for(int i = 0;i < PROFILE_CACHE_SIZE;i++){
+            Profile profile = mProfiles[i];
+            if(profile != null && profile.mWaveLength == waveLength
+                    && profile.mAlphaMin == alphaMin && profile.mAlphaMax == alphaMax){
+                return profile;
+            }
+        }
+
+        Profile profile = new Profile(waveLength,alphaMin,alphaMax);
+        computeProfile(waveLength,alphaMin,alphaMax,profile.mLevels,profile.mAlphas);
+        mProfiles[mNextProfile] = profile;
+        mNextProfile = (mNextProfile + 1) % PROFILE_CACHE_SIZE;
+        return profile;
+    }
+
+    /**
+     * 获取采样表，第一次调用时生成，表中保存[0,1]上等分的{@link #amplitude}
+     */
+    float[] samples(){
+        float samples[] = mSamples;
+        if(samples == null){
+            samples = new float[SAMPLE_COUNT + 1];
+            for(int i = 0;i <= SAMPLE_COUNT;i++){
+                samples[i] = clamp(amplitude((float) i / SAMPLE_COUNT));
+            }
+            mSamples = samples;
+        }
+        return samples;
+    }
+
+    /**
+     * 波峰升高的层数，奇数宽度时为中间元素的层数，偶数宽度时为中间两个元素的层数
+     */
+    static int peakLevel(int waveLength){
+        return waveLength % 2 != 0 ? waveLength / 2 + 1 : waveLength / 2;
+    }
+
+    private static float clamp(float amplitude){
+        if(amplitude > 1){
+            return 1;
+        }
+        return amplitude > 0 ? amplitude : 0;
+    }
+}
@@ -0,0 +1,158 @@
+package com.pyjtlk.waveloadview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AlphaBatchCanvasTest {
+    private static final int IMAGE_SIZE = 10;
+    private static final int BOTTOM = 100;
+
+    private WaveLayoutEngine mEngine;
+    private WaveRenderer mRenderer;
+    private RecordingSink mSink;
+    private AlphaBatchCanvas mBatch;
+
+    private static class RecordingSink implements WaveCanvas,AlphaBatchCanvas.Sink {
+        final List<Integer> alphas = new ArrayList<>();
+        int elements;
+        int direct;
+        float lastRadius;
+
+        @Override
+        public void drawCircles(float[] centers, int count, float radius, int alpha) {
+            alphas.add(alpha);
+            elements += count;
+            lastRadius = radius;
+        }
+
+        @Override
+        public void drawRects(float[] rects, int count, int alpha) {
+            alphas.add(alpha);
+            elements += count;
+        }
+
+        @Override
+        public void drawRoundRects(float[] rects, int count, float radius, int alpha) {
+            alphas.add(alpha);
+            elements += count;
+            lastRadius = radius;
+        }
+
+        @Override
+        public void drawText(int index, float x, float y, int alpha) {
+            direct++;
+        }
+
+        @Override
+        public void drawCircle(float cx, float cy, float radius, int alpha) {
+            direct++;
+        }
+
+        @Override
+        public void drawRect(float left, float top, float right, float bottom, int alpha) {
+            direct++;
+        }
+
+        @Override
+        public void drawRoundRect(float left, float top, float right, float bottom, float radius, int alpha) {
+            direct++;
+        }
+
+        @Override
+        public void drawImage(int left, int top, int right, int bottom, int alpha) {
+            direct++;
+        }
+
+        @Override
+        public void drawCustom(int left, int top, int right, int bottom, int alpha) {
+            direct++;
+        }
+    }
+
+    @Before
+    public void setUp(){
+        mEngine = new WaveLayoutEngine(20,5);
+        mEngine.setGhostAlpha(100,255);
+        mEngine.setWaveStart(8);
+        mEngine.prepareElementsX(0,IMAGE_SIZE,5);
+        mEngine.prepareElementsY(BOTTOM,IMAGE_SIZE,0.5f);
+
+        mRenderer = new WaveRenderer();
+        mRenderer.setImageSize(IMAGE_SIZE);
+        mRenderer.setWaveBottom(BOTTOM);
+        mRenderer.setGhostEffect(true);
+
+        mSink = new RecordingSink();
+        mBatch = new AlphaBatchCanvas(mSink,mSink);
+    }
+
+    private int distinctAlphas(){
+        HashSet<Integer> alphas = new HashSet<>();
+        for(int i = 0;i < mEngine.getLength();i++){
+            alphas.add(mEngine.getAlpha(i));
+        }
+        return alphas.size();
+    }
+
+    @Test
+    public void oneCallPerAlpha(){
+        mRenderer.drawCircles(mEngine,mBatch);
+        assertTrue(mSink.alphas.isEmpty());
+
+        mBatch.flush();
+        assertEquals(distinctAlphas(),mSink.alphas.size());
+        assertEquals(new HashSet<>(mSink.alphas).size(),mSink.alphas.size());
+        assertEquals(20,mSink.elements);
+        assertEquals(IMAGE_SIZE / 2,mSink.lastRadius,0);
+        assertEquals(0,mSink.direct);
+    }
+
+    @Test
+    public void noiseBarsBatched(){
+        mRenderer.drawNoise(mEngine,mBatch);
+        mBatch.flush();
+        assertEquals(distinctAlphas(),mSink.alphas.size());
+        assertEquals(20 * 4,mSink.elements);
+    }
+
+    @Test
+    public void withoutGhostEffectEverythingIsOneCall(){
+        mRenderer.setGhostEffect(false);
+        mRenderer.setRectRadius(3);
+        mRenderer.drawRects(mEngine,mBatch);
+        mBatch.flush();
+        assertEquals(1,mSink.alphas.size());
+        assertEquals(WaveCanvas.ALPHA_NONE,(int) mSink.alphas.get(0));
+        assertEquals(3,mSink.lastRadius,0);
+    }
+
+    @Test
+    public void flushesWhenKindChanges(){
+        mBatch.drawCircle(5,5,5,100);
+        mBatch.drawRect(0,0,10,10,100);
+        assertEquals(1,mSink.alphas.size());
+
+        mBatch.flush();
+        assertEquals(2,mSink.alphas.size());
+        assertEquals(2,mSink.elements);
+
+        mBatch.flush();
+        assertEquals(2,mSink.alphas.size());
+    }
+
+    @Test
+    public void unbatchableElementsPassThrough(){
+        mRenderer.drawText(mEngine,mBatch);
+        mRenderer.drawImages(mEngine,mBatch);
+        mRenderer.drawCustom(mEngine,mBatch);
+        assertEquals(60,mSink.direct);
+        mBatch.flush();
+        assertTrue(mSink.alphas.isEmpty());
+    }
+}
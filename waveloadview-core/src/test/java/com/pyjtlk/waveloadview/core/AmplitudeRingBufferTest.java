@@ -0,0 +1,80 @@
+package com.pyjtlk.waveloadview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AmplitudeRingBufferTest {
+
+    @Test
+    public void capacityRoundsUpToPowerOfTwo(){
+        assertEquals(8,new AmplitudeRingBuffer(5).getCapacity());
+        assertEquals(8,new AmplitudeRingBuffer(8).getCapacity());
+    }
+
+    @Test
+    public void drainAppendsNewestToEnd(){
+        AmplitudeRingBuffer buffer = new AmplitudeRingBuffer(8);
+        float history[] = new float[4];
+
+        buffer.offer(0.1f);
+        buffer.offer(0.2f);
+        assertEquals(2,buffer.drainTo(history));
+        assertArrayEquals(new float[]{0,0,0.1f,0.2f},history,0);
+
+        buffer.offer(0.3f);
+        buffer.offer(0.4f);
+        buffer.offer(0.5f);
+        assertEquals(3,buffer.drainTo(history));
+        assertArrayEquals(new float[]{0.2f,0.3f,0.4f,0.5f},history,0);
+
+        assertEquals(0,buffer.drainTo(history));
+    }
+
+    @Test
+    public void rejectsWhenFullAndClampsRange(){
+        AmplitudeRingBuffer buffer = new AmplitudeRingBuffer(2);
+        assertTrue(buffer.offer(-1));
+        assertTrue(buffer.offer(2));
+        assertFalse(buffer.offer(0.5f));
+
+        float history[] = new float[2];
+        buffer.drainTo(history);
+        assertArrayEquals(new float[]{0,1},history,0);
+        assertTrue(buffer.offer(0.5f));
+    }
+
+    @Test
+    public void producerAndConsumerOnDifferentThreads() throws InterruptedException{
+        final int count = 100000;
+        final AmplitudeRingBuffer buffer = new AmplitudeRingBuffer(64);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for(int i = 1;i <= count;i++){
+                    while(!buffer.offer(i / (float) count)){
+                        Thread.yield();
+                    }
+                }
+            }
+        });
+        producer.start();
+
+        float history[] = new float[1];
+        float last = 0;
+        int received = 0;
+        while(received < count){
+            int drained = buffer.drainTo(history);
+            if(drained > 0){
+                assertTrue(history[0] > last);
+                last = history[0];
+                received += drained;
+            }else{
+                Thread.yield();
+            }
+        }
+        producer.join();
+        assertEquals(1f,last,0);
+        assertEquals(count,received);
+    }
+}
@@ -0,0 +1,67 @@
+package com.pyjtlk.waveloadview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QualityGovernorTest {
+    private static final long BUDGET = 1000;
+
+    /**
+     * 以固定耗时绘制，返回档位第一次变化前记录的帧数，没有变化时返回-1
+     */
+    private static int framesUntilChange(QualityGovernor governor,long drawNanos,int maxFrames){
+        for(int i = 1;i <= maxFrames;i++){
+            if(governor.recordFrame(drawNanos)){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void stepsDownAndBackUp(){
+        QualityGovernor governor = new QualityGovernor(BUDGET);
+        assertEquals(QualityGovernor.QUALITY_HIGH,governor.getQuality());
+
+        //单帧超时不降档
+        assertFalse(governor.recordFrame(BUDGET * 3));
+        assertEquals(-1,framesUntilChange(governor,BUDGET / 2,1000));
+
+        assertTrue(framesUntilChange(governor,BUDGET * 3,100) > 0);
+        assertEquals(QualityGovernor.QUALITY_MEDIUM,governor.getQuality());
+        for(int i = 0;i < 3;i++){
+            framesUntilChange(governor,BUDGET * 3,100);
+        }
+        assertEquals(QualityGovernor.QUALITY_MINIMAL,governor.getQuality());
+        assertEquals(-1,framesUntilChange(governor,BUDGET * 3,1000));
+
+        //耗时在预算的一半到预算之间时保持不变
+        assertEquals(-1,framesUntilChange(governor,BUDGET * 3 / 4,1000));
+        int upgrade = framesUntilChange(governor,BUDGET / 4,1000);
+        assertTrue(upgrade > 60);
+        assertEquals(QualityGovernor.QUALITY_LOW,governor.getQuality());
+
+        //升档后马上又超时，下一次升档等待更久
+        framesUntilChange(governor,BUDGET * 3,100);
+        assertEquals(QualityGovernor.QUALITY_MINIMAL,governor.getQuality());
+        assertTrue(framesUntilChange(governor,BUDGET / 4,10000) > upgrade * 3 / 2);
+    }
+
+    @Test
+    public void floorLimitsQuality(){
+        QualityGovernor governor = new QualityGovernor(BUDGET);
+        assertTrue(governor.setFloorQuality(QualityGovernor.QUALITY_LOW));
+        assertEquals(QualityGovernor.QUALITY_LOW,governor.getQuality());
+        assertEquals(-1,framesUntilChange(governor,BUDGET / 4,1000));
+
+        //在最低档位下仍然超时时继续往下降
+        assertTrue(framesUntilChange(governor,BUDGET * 3,100) > 0);
+        assertEquals(QualityGovernor.QUALITY_MINIMAL,governor.getQuality());
+
+        assertFalse(governor.setFloorQuality(QualityGovernor.QUALITY_HIGH));
+        assertEquals(QualityGovernor.QUALITY_MINIMAL,governor.getQuality());
+        assertTrue(governor.reset());
+        assertEquals(QualityGovernor.QUALITY_HIGH,governor.getQuality());
+    }
+}
@@ -0,0 +1,91 @@
+package com.pyjtlk.waveloadview.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SharedLruCacheTest {
+    private static final class TestCache extends SharedLruCache<String>{
+        private final List<String> mEvicted = new ArrayList<>();
+
+        private TestCache(long maxBytes){
+            super(maxBytes);
+        }
+
+        @Override
+        protected int sizeOf(String value) {
+            return value.length();
+        }
+
+        @Override
+        protected void onEvicted(String value) {
+            mEvicted.add(value);
+        }
+    }
+
+    @Test
+    public void sharedBetweenUsers(){
+        TestCache cache = new TestCache(100);
+        assertNull(cache.acquire(1));
+        assertEquals("aaaa",cache.put(1,"aaaa"));
+        assertEquals("aaaa",cache.acquire(1));
+        //同时烘焙出相同的值时使用先放入的
+        assertEquals("aaaa",cache.put(1,"bbbb"));
+
+        assertEquals(1,cache.getHitCount());
+        assertEquals(1,cache.getMissCount());
+        assertEquals(4,cache.getBytes());
+
+        //交给其他线程的引用不计入统计，释放前不会被淘汰
+        assertEquals("aaaa",cache.retain(1));
+        assertNull(cache.retain(2));
+        for(int i = 0;i < 3;i++){
+            cache.release(1);
+        }
+        cache.trimToSize(0);
+        assertEquals(4,cache.getBytes());
+        cache.release(1);
+        cache.trimToSize(0);
+        assertEquals(0,cache.getBytes());
+        assertEquals(1,cache.getHitCount());
+        assertEquals(1,cache.getMissCount());
+    }
+
+    @Test
+    public void referencedEntriesAreNotEvicted(){
+        TestCache cache = new TestCache(10);
+        cache.put(1,"aaaaa");
+        cache.put(2,"bbbbb");
+        cache.put(3,"ccccc");
+        assertEquals(15,cache.getBytes());
+        assertTrue(cache.mEvicted.isEmpty());
+
+        cache.release(2);
+        assertEquals(1,cache.getEvictionCount());
+        assertEquals("bbbbb",cache.mEvicted.get(0));
+        assertNull(cache.acquire(2));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedAndTrims(){
+        TestCache cache = new TestCache(10);
+        cache.put(1,"aaaa");
+        cache.put(2,"bbbb");
+        cache.release(1);
+        cache.release(2);
+        cache.acquire(1);
+        cache.release(1);
+
+        cache.put(3,"cccc");
+        assertEquals("bbbb",cache.mEvicted.get(0));
+        assertEquals(8,cache.getBytes());
+
+        cache.trimToSize(0);
+        assertEquals(4,cache.getBytes());
+        assertEquals(1,cache.getCount());
+        assertEquals(2,cache.getEvictionCount());
+    }
+}
@@ -0,0 +1,172 @@
+package com.pyjtlk.waveloadview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ * 稳定运行时每一帧的移动、布局和绘制都不应该分配内存
+ */
+public class WaveAllocationTest {
+    private static final int WARMUP_FRAMES = 20000;
+    private static final int FRAMES = 5000;
+    private static final int IMAGE_SIZE = 30;
+    private static final int INTERVAL = 15;
+    private static final int BOTTOM = 200;
+    private static final float WAVE_OFFSET = 0.5f;
+
+    private com.sun.management.ThreadMXBean mThreadBean;
+    private WaveRenderer mRenderer;
+    private NoOpCanvas mCanvas;
+    private AlphaBatchCanvas mBatch;
+
+    private static class NoOpCanvas implements WaveCanvas,AlphaBatchCanvas.Sink {
+        long checksum;
+
+        @Override
+        public void drawText(int index, float x, float y, int alpha) {
+            checksum += index + (long) y + alpha;
+        }
+
+        @Override
+        public void drawCircle(float cx, float cy, float radius, int alpha) {
+            checksum += (long) cy + alpha;
+        }
+
+        @Override
+        public void drawRect(float left, float top, float right, float bottom, int alpha) {
+            checksum += (long) top + alpha;
+        }
+
+        @Override
+        public void drawRoundRect(float left, float top, float right, float bottom, float radius, int alpha) {
+            checksum += (long) top + alpha;
+        }
+
+        @Override
+        public void drawImage(int left, int top, int right, int bottom, int alpha) {
+            checksum += top + alpha;
+        }
+
+        @Override
+        public void drawCustom(int left, int top, int right, int bottom, int alpha) {
+            checksum += top + alpha;
+        }
+
+        @Override
+        public void drawCircles(float[] centers, int count, float radius, int alpha) {
+            checksum += count + alpha;
+        }
+
+        @Override
+        public void drawRects(float[] rects, int count, int alpha) {
+            checksum += count + alpha;
+        }
+
+        @Override
+        public void drawRoundRects(float[] rects, int count, float radius, int alpha) {
+            checksum += count + alpha;
+        }
+    }
+
+    @Before
+    public void setUp(){
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        mThreadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(mThreadBean.isThreadAllocatedMemorySupported());
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+
+        mRenderer = new WaveRenderer();
+        mRenderer.setImageSize(IMAGE_SIZE);
+        mRenderer.setRectRadius(5);
+        mRenderer.setWaveBottom(BOTTOM);
+        mRenderer.setTextHeight(IMAGE_SIZE);
+        mRenderer.setTextBaseline(IMAGE_SIZE);
+        mRenderer.setGhostEffect(true);
+        mRenderer.setClip(0,0,2000,BOTTOM);
+
+        mCanvas = new NoOpCanvas();
+        mBatch = new AlphaBatchCanvas(mCanvas,mCanvas);
+    }
+
+    private void frame(WaveLayoutEngine engine,int frame){
+        engine.moveWave();
+        engine.prepareElementsX(0,IMAGE_SIZE,INTERVAL);
+        engine.prepareElementsY(BOTTOM,IMAGE_SIZE,WAVE_OFFSET);
+        engine.interpolate((frame % 4) / 4f,BOTTOM,IMAGE_SIZE,WAVE_OFFSET);
+
+        mRenderer.drawText(engine,mCanvas);
+        mRenderer.drawCircles(engine,mCanvas);
+        mRenderer.drawSquares(engine,mCanvas);
+        mRenderer.drawRects(engine,mCanvas);
+        mRenderer.drawNoise(engine,mCanvas);
+        mRenderer.drawImages(engine,mCanvas);
+        mRenderer.drawCustom(engine,mCanvas);
+
+        mRenderer.drawCircles(engine,mBatch);
+        mRenderer.drawSquares(engine,mBatch);
+        mRenderer.drawNoise(engine,mBatch);
+        mBatch.flush();
+    }
+
+    private void resizeFrame(WaveLayoutEngine engine,int frame){
+        engine.setup(frame % 2 == 0 ? 64 : 10,frame % 3 == 0 ? 12 : 3);
+        frame(engine,frame);
+    }
+
+    private void assertNoAllocation(WaveLayoutEngine engine){
+        for(int i = 0;i < WARMUP_FRAMES;i++){
+            frame(engine,i);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = mThreadBean.getThreadAllocatedBytes(threadId);
+        for(int i = 0;i < FRAMES;i++){
+            frame(engine,i);
+        }
+        long allocated = mThreadBean.getThreadAllocatedBytes(threadId) - before;
+
+        //任何一次对象分配都至少有十几个字节，平均每帧不到1字节说明帧内没有分配
+        assertTrue("allocated " + allocated + " bytes in " + FRAMES + " frames",allocated < FRAMES);
+        assertTrue(mCanvas.checksum != 0);
+    }
+
+    @Test
+    public void liveLayoutDoesNotAllocate(){
+        WaveLayoutEngine engine = new WaveLayoutEngine(32,9);
+        engine.setGhostAlpha(100,255);
+        assertNoAllocation(engine);
+    }
+
+    @Test
+    public void resizeWithinCapacityDoesNotAllocate(){
+        WaveLayoutEngine engine = new WaveLayoutEngine(32,9);
+        engine.setGhostAlpha(100,255);
+        engine.reserve(64,12);
+        for(int i = 0;i < WARMUP_FRAMES;i++){
+            resizeFrame(engine,i);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = mThreadBean.getThreadAllocatedBytes(threadId);
+        for(int i = 0;i < FRAMES;i++){
+            resizeFrame(engine,i);
+        }
+        long allocated = mThreadBean.getThreadAllocatedBytes(threadId) - before;
+        assertTrue("allocated " + allocated + " bytes in " + FRAMES + " resizes",allocated < FRAMES);
+    }
+
+    @Test
+    public void frameTableDoesNotAllocate(){
+        WaveLayoutEngine engine = new WaveLayoutEngine(32,10);
+        engine.setGhostAlpha(100,255);
+        engine.setFrameTableEnabled(true);
+        assertTrue(engine.buildFrameTable(BOTTOM,IMAGE_SIZE,WAVE_OFFSET));
+        assertNoAllocation(engine);
+    }
+}
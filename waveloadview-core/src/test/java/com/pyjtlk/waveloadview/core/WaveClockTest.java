@@ -0,0 +1,33 @@
+package com.pyjtlk.waveloadview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WaveClockTest {
+    private static final long PERIOD = 100;
+
+    @Test
+    public void stepsFollowTheClock(){
+        assertEquals(0,WaveClock.stepIndex(1000,1000,PERIOD));
+        assertEquals(0,WaveClock.stepIndex(1099,1000,PERIOD));
+        assertEquals(1,WaveClock.stepIndex(1100,1000,PERIOD));
+        assertEquals(-1,WaveClock.stepIndex(999,1000,PERIOD));
+
+        //迟到的回调直接按时钟跳到应有的步数，下一步仍然对齐起点
+        assertEquals(3,WaveClock.stepIndex(1370,1000,PERIOD));
+        assertEquals(1400,WaveClock.nextStepTime(1370,1000,PERIOD));
+        assertEquals(1400,WaveClock.nextStepTime(1300,1000,PERIOD));
+        assertEquals(1000,WaveClock.nextStepTime(950,1000,PERIOD));
+    }
+
+    @Test
+    public void positionDependsOnlyOnTime(){
+        int total = 7;
+        for(long now = 0;now < 5000;now += 37){
+            assertEquals((now / PERIOD) % total,WaveClock.waveStartAt(now,0,PERIOD,total));
+        }
+        assertEquals(6,WaveClock.waveStartAt(-1,0,PERIOD,total));
+        assertEquals(WaveClock.waveStartAt(1234,0,PERIOD,total),WaveClock.waveStartAt(1234 + PERIOD * total,0,PERIOD,total));
+    }
+}
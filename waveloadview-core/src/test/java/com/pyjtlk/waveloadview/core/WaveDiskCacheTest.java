@@ -0,0 +1,130 @@
+package com.pyjtlk.waveloadview.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class WaveDiskCacheTest {
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private static ByteBuffer pixels(int size,int seed){
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for(int i = 0;i < size;i++){
+            buffer.put((byte) (i * 31 + seed));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Test
+    public void keyIsStable(){
+        long a = new RenderKey().put(1).put(2.5f).put(true).put("abc").get();
+        long b = new RenderKey().put(1).put(2.5f).put(true).put("abc").get();
+        assertEquals(a,b);
+        assertNotEquals(a,new RenderKey().put(1).put(2.5f).put(true).put("abd").get());
+        assertNotEquals(new RenderKey().put((String) null).get(),new RenderKey().put("").get());
+        //FNV-1a 64位的空输入
+        assertEquals(0xcbf29ce484222325L,new RenderKey().reset().get());
+    }
+
+    @Test
+    public void storeAndLoad() throws Exception {
+        WaveDiskCache cache = new WaveDiskCache(mFolder.getRoot(),1 << 20,DIRECT);
+        assertNull(cache.load(42,100));
+
+        cache.store(42,pixels(100,7));
+        ByteBuffer loaded = cache.load(42,100);
+        assertNotNull(loaded);
+        assertEquals(pixels(100,7),loaded);
+
+        //大小不一致或文件损坏都视为未命中
+        assertNull(cache.load(42,99));
+        File file = mFolder.getRoot().listFiles()[0];
+        try(RandomAccessFile raf = new RandomAccessFile(file,"rw")){
+            raf.writeInt(0);
+        }
+        assertNull(cache.load(42,100));
+    }
+
+    @Test
+    public void storeFromSourceCopiesOnWriter(){
+        WaveDiskCache cache = new WaveDiskCache(mFolder.getRoot(),1 << 20,DIRECT);
+        final int copies[] = new int[1];
+        final int recycles[] = new int[1];
+        WaveDiskCache.PixelSource source = new WaveDiskCache.PixelSource() {
+            @Override
+            public int getByteCount() {
+                return 100;
+            }
+
+            @Override
+            public void copyTo(ByteBuffer buffer) {
+                copies[0]++;
+                buffer.put(pixels(100,5));
+            }
+
+            @Override
+            public void recycle() {
+                recycles[0]++;
+            }
+        };
+
+        cache.store(7,source);
+        assertEquals(pixels(100,5),cache.load(7,100));
+
+        //文件已经存在时不再复制，但仍然释放
+        cache.store(7,source);
+        assertEquals(1,copies[0]);
+        assertEquals(2,recycles[0]);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed(){
+        WaveDiskCache cache = new WaveDiskCache(mFolder.getRoot(),2500,DIRECT);
+        cache.store(1,pixels(1000,1));
+        cache.store(2,pixels(1000,2));
+        long now = System.currentTimeMillis();
+        for(File file : mFolder.getRoot().listFiles()){
+            file.setLastModified(now - 60000);
+        }
+        assertNotNull(cache.load(1,1000));
+
+        cache.store(3,pixels(1000,3));
+        assertNotNull(cache.load(1,1000));
+        assertNull(cache.load(2,1000));
+        assertNotNull(cache.load(3,1000));
+    }
+
+    @Test
+    public void orderDoesNotDependOnModifiedTime(){
+        WaveDiskCache cache = new WaveDiskCache(mFolder.getRoot(),2500,DIRECT);
+        cache.store(1,pixels(1000,1));
+        cache.store(2,pixels(1000,2));
+        assertNotNull(cache.load(1,1000));
+
+        //模拟不支持修改时间的文件系统，修改时间与使用顺序相反
+        long now = System.currentTimeMillis();
+        new File(mFolder.getRoot(),Long.toHexString(1) + ".frames").setLastModified(now - 60000);
+        new File(mFolder.getRoot(),Long.toHexString(2) + ".frames").setLastModified(now);
+
+        cache.store(3,pixels(1000,3));
+        assertNotNull(cache.load(1,1000));
+        assertNull(cache.load(2,1000));
+        assertNotNull(cache.load(3,1000));
+    }
+}
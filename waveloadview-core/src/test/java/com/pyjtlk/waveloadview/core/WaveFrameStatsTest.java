@@ -0,0 +1,59 @@
+package com.pyjtlk.waveloadview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WaveFrameStatsTest {
+    private static final long STEP = 100;
+
+    @Test
+    public void layoutAndDrawTimes(){
+        WaveFrameStats stats = new WaveFrameStats();
+        stats.recordLayout(10);
+        stats.recordLayout(30);
+        stats.recordDraw(1,50);
+        stats.recordDraw(1,150);
+        stats.recordDraw(WaveFrameStats.STYLE_CUSTOM,70);
+
+        assertEquals(2,stats.getFrameCount());
+        assertEquals(20,stats.getAverageLayoutNanos());
+        assertEquals(30,stats.getMaxLayoutNanos());
+        assertEquals(100,stats.getAverageDrawNanos(1));
+        assertEquals(150,stats.getMaxDrawNanos(1));
+        assertEquals(WaveFrameStats.STYLE_CUSTOM,stats.getLastStyle());
+        assertEquals(70,stats.getLastDrawNanos());
+        assertEquals(0,stats.getAverageDrawNanos(2));
+    }
+
+    @Test
+    public void tickJitterLateAndSkipped(){
+        WaveFrameStats stats = new WaveFrameStats();
+        stats.recordTick(1000,STEP,1);
+        stats.recordTick(1110,STEP,1);
+        stats.recordTick(1270,STEP,1);
+        stats.recordTick(1470,STEP,2);
+
+        assertEquals(3,stats.getTickCount());
+        assertEquals(200,stats.getLastTickIntervalNanos());
+        assertEquals(60,stats.getMaxTickJitterNanos());
+        assertEquals(1,stats.getLateTickCount());
+        assertEquals(1,stats.getSkippedTickCount());
+    }
+
+    @Test
+    public void pauseIsNotCountedAsLate(){
+        WaveFrameStats stats = new WaveFrameStats();
+        stats.recordTick(0,STEP,1);
+        stats.restartTicks();
+        stats.recordTick(10000,STEP,1);
+        stats.recordTick(10100,STEP,1);
+
+        assertEquals(1,stats.getTickCount());
+        assertEquals(0,stats.getLateTickCount());
+
+        stats.reset();
+        assertEquals(0,stats.getTickCount());
+        assertEquals(-1,stats.getLastStyle());
+    }
+}
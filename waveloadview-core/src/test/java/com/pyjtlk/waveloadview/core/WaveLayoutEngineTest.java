@@ -0,0 +1,326 @@
+package com.pyjtlk.waveloadview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class WaveLayoutEngineTest {
+    private static final int BOTTOM = 100;
+    private static final int ELEMENT_HEIGHT = 10;
+    private static final float WAVE_OFFSET = 0.5f;
+    private static final int EVEN_Y = BOTTOM - ELEMENT_HEIGHT;
+
+    private WaveLayoutEngine mOddEngine;
+    private WaveLayoutEngine mEvenEngine;
+
+    @Before
+    public void setUp(){
+        mOddEngine = new WaveLayoutEngine(10,5);
+        mOddEngine.setGhostAlpha(100,255);
+        mEvenEngine = new WaveLayoutEngine(10,4);
+        mEvenEngine.setGhostAlpha(100,255);
+    }
+
+    private static int levelY(int level){
+        return (int) (EVEN_Y - level * ELEMENT_HEIGHT * WAVE_OFFSET);
+    }
+
+    private static void assertLevels(WaveLayoutEngine engine,int... levels){
+        for(int i = 0;i < engine.getLength();i++){
+            int level = i < levels.length ? levels[i] : 0;
+            assertEquals("element " + i,levelY(level),engine.getY(i));
+        }
+    }
+
+    private static void layout(WaveLayoutEngine engine,int waveStart){
+        engine.setWaveStart(waveStart);
+        engine.prepareElementsY(BOTTOM,ELEMENT_HEIGHT,WAVE_OFFSET);
+    }
+
+    @Test
+    public void oddWaveInsideDisplay(){
+        layout(mOddEngine,4);
+        assertLevels(mOddEngine,1,2,3,2,1);
+        assertEquals(255,mOddEngine.getAlpha(2));
+        assertEquals(mOddEngine.getAlpha(0),mOddEngine.getAlpha(4));
+        assertEquals(100,mOddEngine.getAlpha(5));
+    }
+
+    @Test
+    public void oddWaveEnteringFromLeft(){
+        layout(mOddEngine,0);
+        assertLevels(mOddEngine,1);
+    }
+
+    @Test
+    public void oddWaveLeavingToRight(){
+        layout(mOddEngine,13);
+        assertLevels(mOddEngine,0,0,0,0,0,0,0,0,0,1);
+    }
+
+    @Test
+    public void evenWaveInsideDisplay(){
+        layout(mEvenEngine,3);
+        assertLevels(mEvenEngine,1,2,2,1);
+        assertEquals(255,mEvenEngine.getAlpha(1));
+    }
+
+    @Test
+    public void evenWaveEnteringFromLeft(){
+        layout(mEvenEngine,0);
+        assertLevels(mEvenEngine,1);
+    }
+
+    @Test
+    public void evenWaveLeavingToRight(){
+        layout(mEvenEngine,13);
+        assertLevels(mEvenEngine);
+    }
+
+    @Test
+    public void singleElementWave(){
+        WaveLayoutEngine engine = new WaveLayoutEngine(3,1);
+        engine.setGhostAlpha(100,255);
+        for(int i = 0;i < engine.getElementsTotal();i++){
+            layout(engine,i);
+            assertEquals(levelY(1),engine.getY(i));
+        }
+    }
+
+    @Test
+    public void waveStartWrapsAround(){
+        mOddEngine.setWaveStart(mOddEngine.getElementsTotal() - 1);
+        mOddEngine.moveWave();
+        assertEquals(0,mOddEngine.getWaveStart());
+
+        mOddEngine.setWaveStart(-1);
+        assertEquals(0,mOddEngine.getWaveStart());
+    }
+
+    @Test
+    public void elementsX(){
+        mOddEngine.prepareElementsX(3,10,5);
+        for(int i = 0;i < mOddEngine.getLength();i++){
+            assertEquals(3 + 15 * i,mOddEngine.getX(i));
+        }
+    }
+
+    @Test
+    public void measure(){
+        assertEquals(10 * 10 + 9 * 5,WaveLayoutEngine.measureWidth(10,10,5));
+        assertEquals(10 + 3 * 5,WaveLayoutEngine.measureHeight(5,10,0.5f));
+        assertEquals(10 + 2 * 5,WaveLayoutEngine.measureHeight(4,10,0.5f));
+    }
+
+    @Test
+    public void frameTableMatchesLiveLayout(){
+        WaveLayoutEngine[] engines = {mOddEngine,mEvenEngine};
+        for(WaveLayoutEngine live : engines){
+            WaveLayoutEngine table = new WaveLayoutEngine(live.getLength(),live.getWaveLength());
+            table.setGhostAlpha(100,255);
+            table.setFrameTableEnabled(true);
+            assertTrue(table.buildFrameTable(BOTTOM,ELEMENT_HEIGHT,WAVE_OFFSET));
+
+            for(int phase = 0;phase < live.getElementsTotal();phase++){
+                layout(live,phase);
+                layout(table,phase);
+                for(int i = 0;i < live.getLength();i++){
+                    assertEquals(live.getY(i),table.getY(i));
+                    assertEquals(live.getAlpha(i),table.getAlpha(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void frameTableFallsBackWhenTooLarge(){
+        WaveLayoutEngine engine = new WaveLayoutEngine(WaveLayoutEngine.MAX_FRAME_TABLE_SIZE,3);
+        engine.setFrameTableEnabled(true);
+        assertFalse(engine.buildFrameTable(BOTTOM,ELEMENT_HEIGHT,WAVE_OFFSET));
+    }
+
+    @Test
+    public void interpolateBetweenPhases(){
+        layout(mOddEngine,5);
+        int next = mOddEngine.getY(2);
+        layout(mOddEngine,4);
+        int current = mOddEngine.getY(2);
+
+        mOddEngine.interpolate(0.5f,BOTTOM,ELEMENT_HEIGHT,WAVE_OFFSET);
+        assertEquals(current + Math.round((next - current) * 0.5f),mOddEngine.getY(2));
+        assertEquals(4,mOddEngine.getWaveStart());
+
+        mOddEngine.interpolate(0f,BOTTOM,ELEMENT_HEIGHT,WAVE_OFFSET);
+        mOddEngine.prepareElementsY(BOTTOM,ELEMENT_HEIGHT,WAVE_OFFSET);
+        assertEquals(current,mOddEngine.getY(2));
+    }
+
+    @Test
+    public void continuousProfile(){
+        mOddEngine.prepareElementsContinuous(4f,BOTTOM,ELEMENT_HEIGHT,WAVE_OFFSET);
+        assertEquals(4,mOddEngine.getWaveStart());
+        assertEquals(levelY(3),mOddEngine.getTop(2),0.01f);
+        assertEquals(255,mOddEngine.getAlpha(2));
+        assertEquals(mOddEngine.getTop(1),mOddEngine.getTop(3),0.01f);
+        assertEquals(mOddEngine.getTop(0),mOddEngine.getTop(4),0.01f);
+        assertTrue(mOddEngine.getTop(1) > mOddEngine.getTop(2));
+        assertTrue(mOddEngine.getTop(0) > mOddEngine.getTop(1));
+        assertEquals(EVEN_Y,mOddEngine.getTop(5),0.01f);
+        assertEquals(100,mOddEngine.getAlpha(5));
+
+        //半步时波峰落在两个元素中间
+        mOddEngine.prepareElementsContinuous(4.5f,BOTTOM,ELEMENT_HEIGHT,WAVE_OFFSET);
+        assertEquals(mOddEngine.getTop(2),mOddEngine.getTop(3),0.01f);
+        assertTrue(mOddEngine.getTop(2) > levelY(3));
+        assertEquals(Math.round(mOddEngine.getTop(2)),mOddEngine.getY(2));
+
+        mOddEngine.prepareElementsContinuous(4f + mOddEngine.getElementsTotal(),BOTTOM,ELEMENT_HEIGHT,WAVE_OFFSET);
+        assertEquals(4,mOddEngine.getWaveStart());
+
+        mOddEngine.prepareElementsY(BOTTOM,ELEMENT_HEIGHT,WAVE_OFFSET);
+        assertLevels(mOddEngine,1,2,3,2,1);
+    }
+
+    @Test
+    public void evenPeakOnDisplayEdge(){
+        layout(mEvenEngine,1);
+        layout(mEvenEngine,2);
+        assertLevels(mEvenEngine,2,2,1);
+        assertEquals(255,mEvenEngine.getAlpha(0));
+    }
+
+    @Test
+    public void squareShape(){
+        mOddEngine.setWaveShape(WaveShape.SQUARE);
+        layout(mOddEngine,4);
+        assertLevels(mOddEngine,3,3,3,3,3);
+        assertEquals(255,mOddEngine.getAlpha(0));
+        assertEquals(100,mOddEngine.getAlpha(5));
+    }
+
+    @Test
+    public void shapeEvaluatedOnce(){
+        final int calls[] = new int[1];
+        mEvenEngine.setWaveShape(new WaveShape() {
+            @Override
+            public float amplitude(float distance) {
+                calls[0]++;
+                return 1 - distance * distance;
+            }
+        });
+        int evaluated = calls[0];
+        assertEquals(4,evaluated);
+
+        for(int i = 0;i < mEvenEngine.getElementsTotal();i++){
+            layout(mEvenEngine,i);
+        }
+        assertEquals(evaluated,calls[0]);
+
+        layout(mEvenEngine,3);
+        assertEquals(mEvenEngine.getY(0),mEvenEngine.getY(3));
+        assertEquals(mEvenEngine.getY(1),mEvenEngine.getY(2));
+        assertTrue(mEvenEngine.getY(1) < mEvenEngine.getY(0));
+        assertTrue(mEvenEngine.getY(1) >= levelY(2));
+
+        mEvenEngine.setGhostAlpha(50,200);
+        assertEquals(evaluated * 2,calls[0]);
+
+        //参数相同的引擎共用已经求值的结果
+        WaveLayoutEngine other = new WaveLayoutEngine(mEvenEngine.getLength(),mEvenEngine.getWaveLength());
+        other.setGhostAlpha(50,200);
+        other.setWaveShape(mEvenEngine.getWaveShape());
+        assertEquals(evaluated * 2,calls[0]);
+        layout(other,3);
+        layout(mEvenEngine,3);
+        assertEquals(mEvenEngine.getY(1),other.getY(1));
+        assertEquals(mEvenEngine.getAlpha(1),other.getAlpha(1));
+    }
+
+    @Test
+    public void incrementalMatchesFullLayout(){
+        WaveLayoutEngine engine = new WaveLayoutEngine(40,6);
+        engine.setGhostAlpha(100,255);
+        Random random = new Random(7);
+        for(int frame = 0;frame < 500;frame++){
+            int bottom = frame % 50 == 0 ? BOTTOM + frame : BOTTOM;
+            engine.setWaveStart(frame % 7 == 0 ? random.nextInt(engine.getElementsTotal()) : engine.getWaveStart() + 1);
+            engine.prepareElementsY(bottom,ELEMENT_HEIGHT,WAVE_OFFSET);
+
+            WaveLayoutEngine fresh = new WaveLayoutEngine(40,6);
+            fresh.setGhostAlpha(100,255);
+            fresh.setWaveStart(engine.getWaveStart());
+            fresh.prepareElementsY(bottom,ELEMENT_HEIGHT,WAVE_OFFSET);
+            for(int i = 0;i < 40;i++){
+                assertEquals(fresh.getY(i),engine.getY(i));
+                assertEquals(fresh.getAlpha(i),engine.getAlpha(i));
+            }
+        }
+    }
+
+    @Test
+    public void setupReusesStorage(){
+        WaveLayoutEngine engine = new WaveLayoutEngine(40,9);
+        engine.setGhostAlpha(100,255);
+        engine.setWaveStart(20);
+        engine.prepareElementsY(BOTTOM,ELEMENT_HEIGHT,WAVE_OFFSET);
+
+        //缩小后再放大，平坦区和透明度都要按新的宽度重新计算
+        engine.setup(10,4);
+        engine.setup(10,5);
+        layout(engine,4);
+        assertLevels(engine,1,2,3,2,1);
+        assertEquals(255,engine.getAlpha(2));
+        assertEquals(100,engine.getAlpha(9));
+    }
+
+    @Test
+    public void continuousWrapsSmoothly(){
+        int total = mOddEngine.getElementsTotal();
+        mOddEngine.prepareElementsContinuous(total - 0.001f,BOTTOM,ELEMENT_HEIGHT,WAVE_OFFSET);
+        float before = mOddEngine.getTop(0);
+        mOddEngine.prepareElementsContinuous(0f,BOTTOM,ELEMENT_HEIGHT,WAVE_OFFSET);
+        assertEquals(mOddEngine.getTop(0),before,0.05f);
+        assertEquals(levelY(1),mOddEngine.getTop(0),0.01f);
+    }
+
+    @Test
+    public void crestPosition(){
+        mOddEngine.setCrest(0);
+        mOddEngine.prepareElementsY(BOTTOM,ELEMENT_HEIGHT,WAVE_OFFSET);
+        assertLevels(mOddEngine,3,2,1);
+
+        mEvenEngine.setCrest(9);
+        mEvenEngine.prepareElementsY(BOTTOM,ELEMENT_HEIGHT,WAVE_OFFSET);
+        assertLevels(mEvenEngine,0,0,0,0,0,0,0,0,1,2);
+
+        mOddEngine.prepareElementsContinuous(mOddEngine.getPhaseForCrest(6.5f),BOTTOM,ELEMENT_HEIGHT,WAVE_OFFSET);
+        assertEquals(mOddEngine.getTop(6),mOddEngine.getTop(7),0.01f);
+        assertTrue(mOddEngine.getTop(6) < mOddEngine.getTop(5));
+    }
+
+    @Test
+    public void fitLength(){
+        assertEquals(0,WaveLayoutEngine.fitLength(9,10,5));
+        assertEquals(1,WaveLayoutEngine.fitLength(24,10,5));
+        assertEquals(2,WaveLayoutEngine.fitLength(25,10,5));
+        assertEquals(67,WaveLayoutEngine.fitLength(1000,10,5));
+    }
+
+    @Test
+    public void visibleColumns(){
+        //元素宽10，间隔5，第i个元素占据[3 + 15i,13 + 15i)
+        mOddEngine.prepareElementsX(3,10,5);
+        assertEquals(0,mOddEngine.getFirstColumnAfter(0));
+        assertEquals(0,mOddEngine.getFirstColumnAfter(12));
+        assertEquals(1,mOddEngine.getFirstColumnAfter(13));
+        assertEquals(10,mOddEngine.getFirstColumnAfter(1000));
+
+        assertEquals(-1,mOddEngine.getLastColumnBefore(3));
+        assertEquals(0,mOddEngine.getLastColumnBefore(18));
+        assertEquals(1,mOddEngine.getLastColumnBefore(19));
+        assertEquals(9,mOddEngine.getLastColumnBefore(1000));
+    }
+}
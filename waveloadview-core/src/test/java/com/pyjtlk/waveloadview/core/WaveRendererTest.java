@@ -0,0 +1,123 @@
+package com.pyjtlk.waveloadview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WaveRendererTest {
+    private static final int IMAGE_SIZE = 10;
+    private static final int INTERVAL = 5;
+    private static final int BOTTOM = 100;
+
+    private WaveLayoutEngine mEngine;
+    private WaveRenderer mRenderer;
+    private CountingCanvas mCanvas;
+
+    private static class CountingCanvas implements WaveCanvas {
+        int calls;
+        float lastLeft;
+        float lastTop;
+
+        @Override
+        public void drawText(int index, float x, float y, int alpha) {
+            calls++;
+            lastLeft = x;
+        }
+
+        @Override
+        public void drawCircle(float cx, float cy, float radius, int alpha) {
+            calls++;
+            lastLeft = cx - radius;
+        }
+
+        @Override
+        public void drawRect(float left, float top, float right, float bottom, int alpha) {
+            calls++;
+            lastLeft = left;
+            lastTop = top;
+        }
+
+        @Override
+        public void drawRoundRect(float left, float top, float right, float bottom, float radius, int alpha) {
+            calls++;
+            lastLeft = left;
+        }
+
+        @Override
+        public void drawImage(int left, int top, int right, int bottom, int alpha) {
+            calls++;
+            lastLeft = left;
+        }
+
+        @Override
+        public void drawCustom(int left, int top, int right, int bottom, int alpha) {
+            calls++;
+            lastLeft = left;
+        }
+    }
+
+    @Before
+    public void setUp(){
+        mEngine = new WaveLayoutEngine(20,5);
+        mEngine.setGhostAlpha(100,255);
+        mEngine.prepareElementsX(0,IMAGE_SIZE,INTERVAL);
+        mEngine.prepareElementsY(BOTTOM,IMAGE_SIZE,0.5f);
+
+        mRenderer = new WaveRenderer();
+        mRenderer.setImageSize(IMAGE_SIZE);
+        mRenderer.setTextHeight(IMAGE_SIZE);
+        mRenderer.setWaveBottom(BOTTOM);
+
+        mCanvas = new CountingCanvas();
+    }
+
+    @Test
+    public void drawsEveryElementWithoutClip(){
+        mRenderer.drawCircles(mEngine,mCanvas);
+        assertEquals(20,mCanvas.calls);
+    }
+
+    @Test
+    public void skipsColumnsOutsideClip(){
+        //只露出第2~3个元素
+        mRenderer.setClip(2 * (IMAGE_SIZE + INTERVAL),0,4 * (IMAGE_SIZE + INTERVAL),BOTTOM);
+        mRenderer.drawSquares(mEngine,mCanvas);
+        assertEquals(2,mCanvas.calls);
+        assertEquals(3 * (IMAGE_SIZE + INTERVAL),mCanvas.lastLeft,0);
+
+        mCanvas.calls = 0;
+        mRenderer.drawNoise(mEngine,mCanvas);
+        assertEquals(2 * 4,mCanvas.calls);
+    }
+
+    @Test
+    public void skipsElementsAboveClip(){
+        mRenderer.setClip(0,BOTTOM,1000,BOTTOM * 2);
+        mRenderer.drawText(mEngine,mCanvas);
+        assertEquals(0,mCanvas.calls);
+
+        //长方形一直延伸到波的底部
+        mRenderer.setClip(0,BOTTOM - 1,1000,BOTTOM * 2);
+        mRenderer.drawRects(mEngine,mCanvas);
+        assertEquals(20,mCanvas.calls);
+
+        mRenderer.clearClip();
+        mCanvas.calls = 0;
+        mRenderer.drawImages(mEngine,mCanvas);
+        assertEquals(20,mCanvas.calls);
+    }
+
+    @Test
+    public void noiseFollowsAmplitudes(){
+        float amplitudes[] = new float[20 * 4];
+        amplitudes[amplitudes.length - 1] = 1;
+        mRenderer.setAmplitudes(amplitudes);
+        mRenderer.setClip(19 * (IMAGE_SIZE + INTERVAL),0,1000,BOTTOM);
+        mRenderer.drawNoise(mEngine,mCanvas);
+
+        //振幅为1的竖条最高，到y的四分之一处
+        int y = mEngine.getY(19);
+        assertEquals((int) (y * 0.25),mCanvas.lastTop,0);
+    }
+}
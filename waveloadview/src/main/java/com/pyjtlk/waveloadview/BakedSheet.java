@@ -0,0 +1,320 @@
+package com.pyjtlk.waveloadview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import com.pyjtlk.waveloadview.core.SharedLruCache;
+import com.pyjtlk.waveloadview.core.WaveDiskCache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 烘焙的帧图表，波的动画以元素总数为周期循环，把一个周期的每一帧提前绘制到一张位图里，
+ * 之后每帧只需贴一次图，绘制开销与风格和绘制器无关
+ * 帧按网格排列，图表超过内存上限或纹理尺寸上限时不分配，由调用者退回到直接绘制
+ * 烘焙完成后可以放入共享缓存，之后图表只读，配置相同的控件共用同一张位图
+ * 外观变化时需要调用{@link #invalidate}
+ */
+final class BakedSheet {
+    /**
+     * 图表的最大内存，单位为字节
+     */
+    private static final int MAX_SHEET_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * 图表的最大边长，超过后部分设备无法作为纹理上传
+     */
+    private static final int MAX_SHEET_SIZE = 4096;
+
+    /**
+     * 帧四周留出的像素，避免抗锯齿的边缘被裁掉
+     */
+    private static final int FRAME_PADDING = 1;
+
+    private final Canvas mSheetCanvas = new Canvas();
+    private final Paint mBlitPaint = new Paint();
+    private final Rect mSrcRect = new Rect();
+    private final Rect mDstRect = new Rect();
+
+    private Bitmap mSheet;
+    private SharedLruCache<Bitmap> mCache;
+    private long mSharedKey;
+    private int mFrames;
+    private int mFrameWidth;
+    private int mFrameHeight;
+    private int mColumns;
+    private boolean mDirty = true;
+    private boolean mReady;
+
+    /**
+     * 图表中的帧已经过期，下次绘制前需要重新烘焙
+     */
+    void invalidate(){
+        mDirty = true;
+        mReady = false;
+    }
+
+    /**
+     * 是否需要重新烘焙，帧数或帧尺寸变化时也需要
+     */
+    boolean needsBake(int frames,int frameWidth,int frameHeight){
+        return mDirty || frames != mFrames || frameWidth != mFrameWidth || frameHeight != mFrameHeight;
+    }
+
+    /**
+     * 是否可以从图表中贴图，图表超过上限时为false
+     */
+    boolean isReady(){
+        return mReady;
+    }
+
+    /**
+     * 为烘焙分配图表，尺寸不变且没有共享时复用原来的位图
+     * @param frames 帧数
+     * @param frameWidth 帧的宽度，不包括{@link #FRAME_PADDING}
+     * @param frameHeight 帧的高度，不包括{@link #FRAME_PADDING}
+     * @return 超过内存或尺寸上限时返回false，之后到下次{@link #invalidate}或帧尺寸变化前都不再尝试
+     */
+    boolean allocate(int frames,int frameWidth,int frameHeight){
+        if(!layout(frames,frameWidth,frameHeight)){
+            return fail();
+        }
+
+        int width = mColumns * (frameWidth + FRAME_PADDING * 2);
+        int height = (frames + mColumns - 1) / mColumns * (frameHeight + FRAME_PADDING * 2);
+        if(mSheet != null && mCache == null && mSheet.getWidth() == width && mSheet.getHeight() == height){
+            mSheet.eraseColor(Color.TRANSPARENT);
+            return true;
+        }
+
+        freeSheet();
+        try{
+            mSheet = Bitmap.createBitmap(width,height,Bitmap.Config.ARGB_8888);
+        }catch (OutOfMemoryError e){
+            return fail();
+        }
+        mSheetCanvas.setBitmap(mSheet);
+        return true;
+    }
+
+    /**
+     * 从共享缓存中取出其他控件烘焙好的图表，代替烘焙
+     * @param cache 共享缓存
+     * @param key 配置的哈希，相同的哈希对应相同的帧数和帧尺寸
+     * @return 未命中时返回false
+     */
+    boolean attach(SharedLruCache<Bitmap> cache,long key,int frames,int frameWidth,int frameHeight){
+        Bitmap sheet = cache.acquire(key);
+        if(sheet == null){
+            return false;
+        }
+
+        freeSheet();
+        layout(frames,frameWidth,frameHeight);
+        mSheet = sheet;
+        mCache = cache;
+        mSharedKey = key;
+        mReady = true;
+        return true;
+    }
+
+    /**
+     * 把烘焙好的图表放入共享缓存，之后不再修改
+     * 其他控件已经放入了相同的图表时改用已有的，释放自己的
+     * @param cache 共享缓存
+     * @param key 配置的哈希
+     */
+    void share(SharedLruCache<Bitmap> cache,long key){
+        if(mSheet == null || mCache != null){
+            return;
+        }
+
+        Bitmap shared = cache.put(key,mSheet);
+        mSheetCanvas.setBitmap(null);
+        if(shared != mSheet){
+            mSheet.recycle();
+            mSheet = shared;
+        }
+        mCache = cache;
+        mSharedKey = key;
+    }
+
+    /**
+     * 计算帧在图表中的排列
+     * @return 超过内存或尺寸上限时返回false
+     */
+    private boolean layout(int frames,int frameWidth,int frameHeight){
+        mDirty = false;
+        mReady = false;
+        mFrames = frames;
+        mFrameWidth = frameWidth;
+        mFrameHeight = frameHeight;
+
+        int cellWidth = frameWidth + FRAME_PADDING * 2;
+        int cellHeight = frameHeight + FRAME_PADDING * 2;
+        if(frames <= 0 || frameWidth <= 0 || frameHeight <= 0
+                || (long) cellWidth * cellHeight * frames * 4 > MAX_SHEET_BYTES
+                || cellWidth > MAX_SHEET_SIZE){
+            return false;
+        }
+
+        mColumns = Math.min(frames,MAX_SHEET_SIZE / cellWidth);
+        int rows = (frames + mColumns - 1) / mColumns;
+        return rows * cellHeight <= MAX_SHEET_SIZE;
+    }
+
+    /**
+     * 开始烘焙一帧，返回的画布已经裁剪到这一帧的格子，并平移到与控件相同的坐标系
+     * @param frame 帧序号
+     * @param left 帧在控件中的左边界
+     * @param top 帧在控件中的上边界
+     */
+    Canvas beginFrame(int frame,int left,int top){
+        int cellLeft = cellLeft(frame);
+        int cellTop = cellTop(frame);
+        mSheetCanvas.save();
+        mSheetCanvas.clipRect(cellLeft,cellTop,
+                cellLeft + mFrameWidth + FRAME_PADDING * 2,cellTop + mFrameHeight + FRAME_PADDING * 2);
+        mSheetCanvas.translate(cellLeft + FRAME_PADDING - left,cellTop + FRAME_PADDING - top);
+        return mSheetCanvas;
+    }
+
+    void endFrame(){
+        mSheetCanvas.restore();
+    }
+
+    /**
+     * 所有帧都已烘焙完成
+     */
+    void finish(){
+        mReady = true;
+    }
+
+    /**
+     * 把一帧贴到目标画布上
+     * @param canvas 目标画布
+     * @param frame 帧序号
+     * @param left 帧在控件中的左边界
+     * @param top 帧在控件中的上边界
+     * @return 帧序号超出范围或图表不可用时返回false
+     */
+    boolean draw(Canvas canvas,int frame,int left,int top){
+        if(!mReady || frame < 0 || frame >= mFrames){
+            return false;
+        }
+
+        int cellLeft = cellLeft(frame);
+        int cellTop = cellTop(frame);
+        int cellWidth = mFrameWidth + FRAME_PADDING * 2;
+        int cellHeight = mFrameHeight + FRAME_PADDING * 2;
+        mSrcRect.set(cellLeft,cellTop,cellLeft + cellWidth,cellTop + cellHeight);
+        mDstRect.set(left - FRAME_PADDING,top - FRAME_PADDING,
+                left - FRAME_PADDING + cellWidth,top - FRAME_PADDING + cellHeight);
+        canvas.drawBitmap(mSheet,mSrcRect,mDstRect,mBlitPaint);
+        return true;
+    }
+
+    /**
+     * 图表的像素数据大小，只在{@link #allocate}成功后有效
+     */
+    int getByteCount(){
+        return mSheet != null ? mSheet.getByteCount() : 0;
+    }
+
+    /**
+     * 从缓冲区读取所有帧，代替烘焙
+     * @param pixels 像素数据，由{@link #pixelSource}写入磁盘缓存
+     * @return 缓冲区大小不一致时返回false
+     */
+    boolean readPixels(ByteBuffer pixels){
+        if(mSheet == null || pixels == null || pixels.remaining() != mSheet.getByteCount()){
+            return false;
+        }
+
+        mSheet.copyPixelsFromBuffer(pixels);
+        return true;
+    }
+
+    /**
+     * 交给磁盘缓存的像素数据，在写入线程上才复制，绘制线程不需要分配和复制
+     * 只有{@link #share}之后的图表不再修改，可以在其他线程读取；额外持有一次共享缓存的引用，复制完才释放，
+     * 期间图表不会被淘汰回收
+     * @return 图表没有共享时返回null
+     */
+    WaveDiskCache.PixelSource pixelSource(){
+        if(mSheet == null || mCache == null){
+            return null;
+        }
+
+        final SharedLruCache<Bitmap> cache = mCache;
+        final long key = mSharedKey;
+        final Bitmap sheet = cache.retain(key);
+        if(sheet == null){
+            return null;
+        }
+
+        return new WaveDiskCache.PixelSource() {
+            @Override
+            public int getByteCount() {
+                return sheet.getByteCount();
+            }
+
+            @Override
+            public void copyTo(ByteBuffer buffer) {
+                sheet.copyPixelsToBuffer(buffer);
+            }
+
+            @Override
+            public void recycle() {
+                cache.release(key);
+            }
+        };
+    }
+
+    /**
+     * 释放图表，下次绘制前重新烘焙
+     */
+    void release(){
+        mDirty = true;
+        mReady = false;
+        freeSheet();
+    }
+
+    /**
+     * 共享的图表只释放引用，由缓存决定何时回收
+     */
+    private void freeSheet(){
+        if(mSheet == null){
+            return;
+        }
+
+        if(mCache != null){
+            mCache.release(mSharedKey);
+            mCache = null;
+            mSharedKey = 0;
+        }else{
+            mSheet.recycle();
+        }
+        mSheet = null;
+    }
+
+    /**
+     * 分配失败，释放已有的位图，在帧尺寸或外观变化前不再重试
+     */
+    private boolean fail(){
+        release();
+        mDirty = false;
+        return false;
+    }
+
+    private int cellLeft(int frame){
+        return (frame % mColumns) * (mFrameWidth + FRAME_PADDING * 2);
+    }
+
+    private int cellTop(int frame){
+        return (frame / mColumns) * (mFrameHeight + FRAME_PADDING * 2);
+    }
+}
@@ -0,0 +1,178 @@
+package com.pyjtlk.waveloadview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+import com.pyjtlk.waveloadview.core.AlphaBatchCanvas;
+import com.pyjtlk.waveloadview.core.WaveCanvas;
+
+/**
+ * 把{@link WaveCanvas}的绘制调用转发到Android的Canvas上
+ * 同时作为{@link AlphaBatchCanvas}的绘制目标，圆点用圆头的drawPoints，矩形用drawLines，圆角矩形合并成一个Path
+ */
+class CanvasWaveCanvas implements WaveCanvas,AlphaBatchCanvas.Sink {
+    private Canvas mCanvas;
+    private Paint mPaint;
+    private String mText;
+    private char mChars[];
+    private Drawable mDrawable;
+    private WaveLoadingView.AbsWaveDrawer mWaveDrawer;
+    private int mImageSize;
+    private int mAlphaScale = 255;
+    private final Rect mElementRect = new Rect();
+    private final Paint mBatchPaint = new Paint();
+    private final Path mBatchPath = new Path();
+
+    CanvasWaveCanvas(Paint paint){
+        mPaint = paint;
+    }
+
+    void setCanvas(Canvas canvas){
+        mCanvas = canvas;
+    }
+
+    void setText(String text){
+        if(text == mText){
+            return;
+        }
+
+        mText = text;
+        mChars = text == null ? null : text.toCharArray();
+    }
+
+    void setDrawable(Drawable drawable){
+        mDrawable = drawable;
+    }
+
+    void setWaveDrawer(WaveLoadingView.AbsWaveDrawer waveDrawer,int imageSize){
+        mWaveDrawer = waveDrawer;
+        mImageSize = imageSize;
+    }
+
+    /**
+     * 设置整体透明度，幻影效果的透明度会按比例缩小，没有幻影效果时由画笔颜色自带
+     * @param alphaScale 整体透明度，0~255
+     */
+    void setAlphaScale(int alphaScale){
+        mAlphaScale = alphaScale;
+    }
+
+    private int scaleAlpha(int alpha){
+        return mAlphaScale == 255 ? alpha : alpha * mAlphaScale / 255;
+    }
+
+    private void applyAlpha(int alpha){
+        if(alpha != ALPHA_NONE){
+            mPaint.setAlpha(scaleAlpha(alpha));
+        }
+    }
+
+    @Override
+    public void drawText(int index, float x, float y, int alpha) {
+        applyAlpha(alpha);
+        mCanvas.drawText(mChars,index,1,x,y,mPaint);
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, int alpha) {
+        applyAlpha(alpha);
+        mCanvas.drawCircle(cx,cy,radius,mPaint);
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, int alpha) {
+        applyAlpha(alpha);
+        mCanvas.drawRect(left,top,right,bottom,mPaint);
+    }
+
+    @Override
+    public void drawRoundRect(float left, float top, float right, float bottom, float radius, int alpha) {
+        applyAlpha(alpha);
+        mCanvas.drawRoundRect(left,top,right,bottom,radius,radius,mPaint);
+    }
+
+    @Override
+    public void drawImage(int left, int top, int right, int bottom, int alpha) {
+        if(alpha != ALPHA_NONE){
+            mDrawable.setAlpha(scaleAlpha(alpha));
+        }else if(mAlphaScale != 255){
+            mDrawable.setAlpha(mAlphaScale);
+        }
+        mDrawable.setBounds(left,top,right,bottom);
+        mDrawable.draw(mCanvas);
+    }
+
+    @Override
+    public void drawCustom(int left, int top, int right, int bottom, int alpha) {
+        applyAlpha(alpha);
+        mElementRect.set(left,top,right,bottom);
+        mWaveDrawer.onDrawWave(mCanvas,mPaint,mElementRect,mImageSize);
+    }
+
+    /**
+     * 批量绘制会修改线宽和线头，复制一份画笔，不影响逐个绘制时使用的画笔
+     */
+    private Paint batchPaint(int alpha){
+        mBatchPaint.set(mPaint);
+        if(alpha != ALPHA_NONE){
+            mBatchPaint.setAlpha(scaleAlpha(alpha));
+        }
+        return mBatchPaint;
+    }
+
+    @Override
+    public void drawCircles(float[] centers, int count, float radius, int alpha) {
+        Paint paint = batchPaint(alpha);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        paint.setStrokeWidth(radius * 2);
+        mCanvas.drawPoints(centers,0,count * 2,paint);
+    }
+
+    @Override
+    public void drawRects(float[] rects, int count, int alpha) {
+        Paint paint = batchPaint(alpha);
+        float width = rects[2] - rects[0];
+        boolean sameWidth = width > 0;
+        for(int i = 1;i < count && sameWidth;i++){
+            sameWidth = rects[i * 4 + 2] - rects[i * 4] == width;
+        }
+
+        if(!sameWidth){
+            paint.setStyle(Paint.Style.FILL);
+            mBatchPath.rewind();
+            for(int i = 0;i < count;i++){
+                int offset = i * 4;
+                mBatchPath.addRect(rects[offset],rects[offset + 1],rects[offset + 2],rects[offset + 3],Path.Direction.CW);
+            }
+            mCanvas.drawPath(mBatchPath,paint);
+            return;
+        }
+
+        //宽度相同的矩形就是平头的粗线段，从顶部中点画到底部中点
+        for(int i = 0;i < count;i++){
+            int offset = i * 4;
+            float centerX = rects[offset] + width / 2;
+            rects[offset] = centerX;
+            rects[offset + 2] = centerX;
+        }
+        paint.setStrokeCap(Paint.Cap.BUTT);
+        paint.setStrokeWidth(width);
+        mCanvas.drawLines(rects,0,count * 4,paint);
+    }
+
+    @Override
+    public void drawRoundRects(float[] rects, int count, float radius, int alpha) {
+        Paint paint = batchPaint(alpha);
+        paint.setStyle(Paint.Style.FILL);
+        mBatchPath.rewind();
+        for(int i = 0;i < count;i++){
+            int offset = i * 4;
+            mBatchPath.addRoundRect(rects[offset],rects[offset + 1],rects[offset + 2],rects[offset + 3],
+                    radius,radius,Path.Direction.CW);
+        }
+        mCanvas.drawPath(mBatchPath,paint);
+    }
+}
@@ -0,0 +1,297 @@
+package com.pyjtlk.waveloadview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+import com.pyjtlk.waveloadview.core.WaveCanvas;
+
+/**
+ * 精灵图集，元素的形状只由尺寸和透明度决定，而幻影效果的透明度只有少数几种取值，
+ * 所以每种形状只用矢量绘制一次到图集里，之后每帧都直接从图集中贴图
+ * 图集放满后，新的形状退回到直接绘制
+ * 颜色、尺寸、圆角或绘制器变化时需要调用{@link #invalidate}
+ */
+final class SpriteAtlas implements WaveCanvas {
+    /**
+     * 图集最多容纳的形状个数
+     */
+    private static final int MAX_CELLS = 64;
+
+    /**
+     * 图集的最大内存，单位为字节
+     */
+    private static final int MAX_ATLAS_BYTES = 1024 * 1024;
+
+    /**
+     * 形状四周留出的像素，避免抗锯齿的边缘被裁掉
+     */
+    private static final int CELL_PADDING = 1;
+
+    private static final int KIND_CIRCLE = 1;
+    private static final int KIND_RECT = 2;
+    private static final int KIND_ROUND_RECT = 3;
+    private static final int KIND_IMAGE = 4;
+    private static final int KIND_CUSTOM = 5;
+
+    private final CanvasWaveCanvas mDirect;
+    private final CanvasWaveCanvas mRaster;
+    private final Canvas mAtlasCanvas = new Canvas();
+    private final Paint mBlitPaint = new Paint();
+    private final Rect mSrcRect = new Rect();
+    private final Rect mDstRect = new Rect();
+
+    private Bitmap mAtlas;
+    private Canvas mTarget;
+    private int mCellWidth;
+    private int mCellHeight;
+    private int mColumns;
+    private int mCapacity;
+    private int mCellCount;
+    private int mFreeSlot;
+
+    /**
+     * 形状到图集格子的映射，线性探测的开放寻址表，键为0表示空位
+     */
+    private final long mKeys[] = new long[MAX_CELLS * 2];
+    private final int mCells[] = new int[MAX_CELLS * 2];
+
+    /**
+     * @param direct 直接绘制到目标画布上的画布
+     * @param raster 绘制到图集上的画布，和direct使用同一个画笔
+     */
+    SpriteAtlas(CanvasWaveCanvas direct,CanvasWaveCanvas raster){
+        mDirect = direct;
+        mRaster = raster;
+        mRaster.setCanvas(mAtlasCanvas);
+    }
+
+    /**
+     * 设置目标画布
+     */
+    void setTarget(Canvas canvas){
+        mTarget = canvas;
+    }
+
+    /**
+     * 设置绘制到图集上时使用的图片和绘制器
+     */
+    void setRasterParams(Drawable drawable,WaveLoadingView.AbsWaveDrawer waveDrawer,int imageSize){
+        mRaster.setDrawable(drawable);
+        mRaster.setWaveDrawer(waveDrawer,imageSize);
+    }
+
+    /**
+     * 设置单个形状的最大尺寸，超过这个尺寸的形状直接绘制
+     */
+    void setMaxElementSize(int width,int height){
+        int cellWidth = width + CELL_PADDING * 2;
+        int cellHeight = height + CELL_PADDING * 2;
+        if(cellWidth == mCellWidth && cellHeight == mCellHeight){
+            return;
+        }
+
+        mCellWidth = cellWidth;
+        mCellHeight = cellHeight;
+        release();
+    }
+
+    /**
+     * 清空图集中的所有形状
+     */
+    void invalidate(){
+        if(mCellCount == 0){
+            return;
+        }
+
+        for(int i = 0;i < mKeys.length;i++){
+            mKeys[i] = 0;
+        }
+        mCellCount = 0;
+        if(mAtlas != null){
+            mAtlas.eraseColor(Color.TRANSPARENT);
+        }
+    }
+
+    /**
+     * 释放图集
+     */
+    void release(){
+        invalidate();
+        if(mAtlas != null){
+            mAtlas.recycle();
+            mAtlas = null;
+        }
+        mCapacity = 0;
+    }
+
+    private boolean ensureAtlas(){
+        if(mAtlas != null){
+            return true;
+        }
+
+        if(mCellWidth <= 0 || mCellHeight <= 0){
+            return false;
+        }
+
+        mCapacity = Math.min(MAX_CELLS,MAX_ATLAS_BYTES / (mCellWidth * mCellHeight * 4));
+        if(mCapacity <= 0){
+            return false;
+        }
+
+        mColumns = (int) Math.ceil(Math.sqrt(mCapacity));
+        int rows = (mCapacity + mColumns - 1) / mColumns;
+        mAtlas = Bitmap.createBitmap(mColumns * mCellWidth,rows * mCellHeight,Bitmap.Config.ARGB_8888);
+        mAtlasCanvas.setBitmap(mAtlas);
+        return true;
+    }
+
+    private static long keyOf(int kind,int width,int height,int alpha){
+        return ((long) kind << 48) | ((long) (alpha + 1) << 32) | ((long) width << 16) | height;
+    }
+
+    /**
+     * 查找形状所在的格子，找不到时返回-1，并记下可插入的位置
+     */
+    private int findCell(long key){
+        int mask = mKeys.length - 1;
+        int slot = (int) (key ^ (key >>> 29) ^ (key >>> 47)) & mask;
+        while(mKeys[slot] != 0){
+            if(mKeys[slot] == key){
+                return mCells[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        mFreeSlot = slot;
+        return -1;
+    }
+
+    /**
+     * 获取形状所在的格子，没有时分配一个新格子并把形状绘制进去
+     * 圆角半径变化时会调用{@link #invalidate}，所以不放进键里
+     * @return 格子序号，图集已满时返回-1
+     */
+    private int obtainCell(int kind,int width,int height,float radius,int alpha){
+        if(width <= 0 || height <= 0
+                || width + CELL_PADDING * 2 > mCellWidth
+                || height + CELL_PADDING * 2 > mCellHeight
+                || !ensureAtlas()){
+            return -1;
+        }
+
+        long key = keyOf(kind,width,height,alpha);
+        int cell = findCell(key);
+        if(cell >= 0){
+            return cell;
+        }
+
+        if(mCellCount >= mCapacity){
+            return -1;
+        }
+
+        cell = mCellCount++;
+        mKeys[mFreeSlot] = key;
+        mCells[mFreeSlot] = cell;
+
+        int left = cellLeft(cell) + CELL_PADDING;
+        int top = cellTop(cell) + CELL_PADDING;
+        switch(kind){
+            case KIND_CIRCLE:
+                mRaster.drawCircle(left + width / 2f,top + height / 2f,width / 2f,alpha);
+                break;
+
+            case KIND_RECT:
+                mRaster.drawRect(left,top,left + width,top + height,alpha);
+                break;
+
+            case KIND_ROUND_RECT:
+                mRaster.drawRoundRect(left,top,left + width,top + height,radius,alpha);
+                break;
+
+            case KIND_IMAGE:
+                mRaster.drawImage(left,top,left + width,top + height,alpha);
+                break;
+
+            case KIND_CUSTOM:
+                mRaster.drawCustom(left,top,left + width,top + height,alpha);
+                break;
+        }
+        return cell;
+    }
+
+    private int cellLeft(int cell){
+        return (cell % mColumns) * mCellWidth;
+    }
+
+    private int cellTop(int cell){
+        return (cell / mColumns) * mCellHeight;
+    }
+
+    private void blit(int cell,int left,int top){
+        int cellLeft = cellLeft(cell);
+        int cellTop = cellTop(cell);
+        mSrcRect.set(cellLeft,cellTop,cellLeft + mCellWidth,cellTop + mCellHeight);
+        mDstRect.set(left - CELL_PADDING,top - CELL_PADDING,
+                left - CELL_PADDING + mCellWidth,top - CELL_PADDING + mCellHeight);
+        mTarget.drawBitmap(mAtlas,mSrcRect,mDstRect,mBlitPaint);
+    }
+
+    @Override
+    public void drawText(int index, float x, float y, int alpha) {
+        mDirect.drawText(index,x,y,alpha);
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, int alpha) {
+        int size = Math.round(radius * 2);
+        int cell = obtainCell(KIND_CIRCLE,size,size,0,alpha);
+        if(cell < 0){
+            mDirect.drawCircle(cx,cy,radius,alpha);
+            return;
+        }
+        blit(cell,Math.round(cx - radius),Math.round(cy - radius));
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, int alpha) {
+        int cell = obtainCell(KIND_RECT,Math.round(right - left),Math.round(bottom - top),0,alpha);
+        if(cell < 0){
+            mDirect.drawRect(left,top,right,bottom,alpha);
+            return;
+        }
+        blit(cell,Math.round(left),Math.round(top));
+    }
+
+    @Override
+    public void drawRoundRect(float left, float top, float right, float bottom, float radius, int alpha) {
+        int cell = obtainCell(KIND_ROUND_RECT,Math.round(right - left),Math.round(bottom - top),radius,alpha);
+        if(cell < 0){
+            mDirect.drawRoundRect(left,top,right,bottom,radius,alpha);
+            return;
+        }
+        blit(cell,Math.round(left),Math.round(top));
+    }
+
+    @Override
+    public void drawImage(int left, int top, int right, int bottom, int alpha) {
+        int cell = obtainCell(KIND_IMAGE,right - left,bottom - top,0,alpha);
+        if(cell < 0){
+            mDirect.drawImage(left,top,right,bottom,alpha);
+            return;
+        }
+        blit(cell,left,top);
+    }
+
+    @Override
+    public void drawCustom(int left, int top, int right, int bottom, int alpha) {
+        int cell = obtainCell(KIND_CUSTOM,right - left,bottom - top,0,alpha);
+        if(cell < 0){
+            mDirect.drawCustom(left,top,right,bottom,alpha);
+            return;
+        }
+        blit(cell,left,top);
+    }
+}
@@ -0,0 +1,172 @@
+package com.pyjtlk.waveloadview;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+
+import com.pyjtlk.waveloadview.core.RenderKey;
+
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+/**
+ * 解析后的布局属性，生成后不再修改
+ * 只通过style设置属性、没有在布局中直接写属性的控件，相同主题下相同的style只解析一次，之后的控件共用解析结果，
+ * 列表中大量相同的控件不需要每次都读取TypedArray
+ * 解析结果按主题分开缓存，并且区分当前的资源配置，切换夜间模式、语言或屏幕密度后重新解析，主题被回收时缓存随之释放
+ * 可以在任意线程调用，异步加载布局时也能使用
+ */
+final class WaveAttributes {
+    private static final WeakHashMap<Resources.Theme,HashMap<Long,WaveAttributes>> sStyleCache = new WeakHashMap<>();
+    private static final RenderKey sStyleKey = new RenderKey();
+
+    final String mText;
+    final int mColor;
+    final int mType;
+    final int mWaveLength;
+    final int mWaveHeight;
+    private final Drawable mCustomImage;
+    final int mDuration;
+    final int mInterval;
+    final int mImageSize;
+    final int mTextSize;
+    final int mLength;
+    final int mRectRadius;
+    final boolean mGhostEffect;
+    final int mGhostAlphaMax;
+    final int mGhostAlphaMin;
+    final int mAnimMode;
+    final int mClockMode;
+    final boolean mInterpolate;
+    final boolean mFrameTable;
+    final boolean mSpriteAtlas;
+    final boolean mBatchDraw;
+    final boolean mBaked;
+    final boolean mContinuous;
+    final int mWaveShape;
+    final boolean mAutoFit;
+    final boolean mAdaptiveQuality;
+
+    private WaveAttributes(Context context,AttributeSet attrs){
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        TypedArray typedArray = context.obtainStyledAttributes(attrs,R.styleable.WaveLoadingView);
+
+        mText = typedArray.getString(R.styleable.WaveLoadingView_text);
+        mColor = typedArray.getColor(R.styleable.WaveLoadingView_color, Color.BLUE);
+        mType = typedArray.getInt(R.styleable.WaveLoadingView_imageWaveType,WaveLoadingView.IMAGE_TYPE_CIRCLE);
+        mWaveLength = typedArray.getInt(R.styleable.WaveLoadingView_waveLength,1);
+        mWaveHeight = typedArray.getInt(R.styleable.WaveLoadingView_waveHeight,WaveLoadingView.WAVE_HEIGHT_NORMAL);
+        mCustomImage = typedArray.getDrawable(R.styleable.WaveLoadingView_customImage);
+        mDuration = typedArray.getInt(R.styleable.WaveLoadingView_duration,WaveLoadingView.DEFAULT_DURATION_MS);
+        mInterval = typedArray.getDimensionPixelSize(R.styleable.WaveLoadingView_interval,
+                (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_PX,WaveLoadingView.DEFAULT_INTERVAL_DP,metrics));
+        mImageSize = typedArray.getDimensionPixelSize(R.styleable.WaveLoadingView_imageSize,
+                (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_PX,WaveLoadingView.DEFAULT_IMAGE_SIZE_DP,metrics));
+        mTextSize = typedArray.getDimensionPixelSize(R.styleable.WaveLoadingView_textSize,
+                (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_PX,WaveLoadingView.DEFAULT_TEXT_SIZE_SP,metrics));
+        mLength = typedArray.getInt(R.styleable.WaveLoadingView_length,mWaveLength + 2);
+        mRectRadius = typedArray.getDimensionPixelSize(R.styleable.WaveLoadingView_rectRadius,0);
+        mGhostEffect = typedArray.getBoolean(R.styleable.WaveLoadingView_ghostEffect,false);
+        mGhostAlphaMax = typedArray.getInt(R.styleable.WaveLoadingView_ghostAlphaMax,WaveLoadingView.GHOST_ALPHA_MAX_DEFAULT);
+        mGhostAlphaMin = typedArray.getInt(R.styleable.WaveLoadingView_ghostAlphaMin,WaveLoadingView.GHOST_ALPHA_MIN_DEFAULT);
+        mAnimMode = typedArray.getInt(R.styleable.WaveLoadingView_animMode,WaveLoadingView.ANIM_MODE_VSYNC);
+        mClockMode = typedArray.getInt(R.styleable.WaveLoadingView_clockMode,WaveLoadingView.CLOCK_MODE_DELAY);
+        mInterpolate = typedArray.getBoolean(R.styleable.WaveLoadingView_interpolate,true);
+        mFrameTable = typedArray.getBoolean(R.styleable.WaveLoadingView_frameTable,false);
+        mSpriteAtlas = typedArray.getBoolean(R.styleable.WaveLoadingView_spriteAtlas,false);
+        mBatchDraw = typedArray.getBoolean(R.styleable.WaveLoadingView_batchDraw,false);
+        mBaked = typedArray.getBoolean(R.styleable.WaveLoadingView_baked,false);
+        mContinuous = typedArray.getBoolean(R.styleable.WaveLoadingView_continuous,false);
+        mWaveShape = typedArray.getInt(R.styleable.WaveLoadingView_waveShape,0);
+        mAutoFit = typedArray.getBoolean(R.styleable.WaveLoadingView_autoFit,false);
+        mAdaptiveQuality = typedArray.getBoolean(R.styleable.WaveLoadingView_adaptiveQuality,false);
+
+        typedArray.recycle();
+    }
+
+    /**
+     * 获取解析后的属性
+     * @param context Context
+     * @param attrs 布局属性，可以为null
+     */
+    static WaveAttributes obtain(Context context,AttributeSet attrs){
+        int style = attrs != null ? attrs.getStyleAttribute() : 0;
+        if(style == 0 || hasInlineAttributes(attrs)){
+            return new WaveAttributes(context,attrs);
+        }
+
+        //主题属性按主题取值，资源按当前配置选取，尺寸与屏幕密度和字体缩放有关
+        Resources resources = context.getResources();
+        Configuration configuration = resources.getConfiguration();
+        synchronized (sStyleCache){
+            Resources.Theme theme = context.getTheme();
+            HashMap<Long,WaveAttributes> styles = sStyleCache.get(theme);
+            if(styles == null){
+                styles = new HashMap<>();
+                sStyleCache.put(theme,styles);
+            }
+
+            long key = sStyleKey.reset()
+                    .put(style)
+                    .put(resources.getDisplayMetrics().densityDpi)
+                    .put(configuration.fontScale)
+                    .put(configuration.uiMode)
+                    .put(localesOf(configuration))
+                    .put(configuration.hashCode())
+                    .get();
+            WaveAttributes attributes = styles.get(key);
+            if(attributes == null){
+                attributes = new WaveAttributes(context,attrs);
+                if(attributes.mCustomImage == null || attributes.mCustomImage.getConstantState() != null){
+                    styles.put(key,attributes);
+                }
+            }
+            return attributes;
+        }
+    }
+
+    /**
+     * 配置中的语言列表，文本等字符串资源按它选取
+     */
+    private static String localesOf(Configuration configuration){
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.N){
+            return configuration.getLocales().toLanguageTags();
+        }
+        return String.valueOf(configuration.locale);
+    }
+
+    /**
+     * 布局中是否直接写了控件的属性，写了时解析结果与其他使用相同style的控件不同，不能共用
+     */
+    private static boolean hasInlineAttributes(AttributeSet attrs){
+        int styleable[] = R.styleable.WaveLoadingView;
+        for(int i = 0;i < attrs.getAttributeCount();i++){
+            int nameResource = attrs.getAttributeNameResource(i);
+            for(int attr : styleable){
+                if(attr == nameResource){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 每个控件需要一个独立的图片实例，无法复制的图片不会被缓存，直接使用解析出的实例
+     */
+    Drawable newCustomImage(Resources resources){
+        if(mCustomImage == null){
+            return null;
+        }
+
+        Drawable.ConstantState state = mCustomImage.getConstantState();
+        return state != null ? state.newDrawable(resources) : mCustomImage;
+    }
+}
@@ -0,0 +1,70 @@
+package com.pyjtlk.waveloadview;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+
+import com.pyjtlk.waveloadview.core.SharedLruCache;
+
+/**
+ * 进程内共享的位图缓存，只缓存烘焙模式的帧图表，配置相同的控件共用同一张
+ * 帧图表按帧保存整个波的画面，文本风格的也一样，不是可以复用的字形条；图集中的元素每个控件单独绘制，不在这里共享
+ * 按位图的字节数限制大小，被控件引用的位图不会被淘汰，系统内存紧张时通过{@link #onTrimMemory}缩小或清空
+ * 命中、未命中和淘汰次数可以用来为不同内存档位的设备调整大小
+ */
+public final class WaveBitmapCache extends SharedLruCache<Bitmap> implements ComponentCallbacks2 {
+    /**
+     * 默认大小占应用最大内存的比例的倒数
+     */
+    private static final int DEFAULT_MEMORY_FRACTION = 32;
+
+    private static WaveBitmapCache sInstance;
+
+    private WaveBitmapCache(long maxBytes){
+        super(maxBytes);
+    }
+
+    /**
+     * 获取缓存，第一次调用时创建并注册内存回调，只能在主线程调用
+     * @param context 任意Context，只会持有ApplicationContext
+     */
+    public static WaveBitmapCache getInstance(Context context){
+        if(sInstance == null){
+            sInstance = new WaveBitmapCache(Runtime.getRuntime().maxMemory() / DEFAULT_MEMORY_FRACTION);
+            context.getApplicationContext().registerComponentCallbacks(sInstance);
+        }
+        return sInstance;
+    }
+
+    @Override
+    protected int sizeOf(Bitmap value) {
+        return value.getByteCount();
+    }
+
+    @Override
+    protected void onEvicted(Bitmap value) {
+        value.recycle();
+    }
+
+    /**
+     * 界面不可见时缩小到一半，进程可能被回收时淘汰所有没有被引用的位图
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        if(level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL){
+            trimToSize(0);
+        }else if(level >= TRIM_MEMORY_RUNNING_LOW){
+            trimToSize(getMaxBytes() / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        trimToSize(0);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+}
@@ -0,0 +1,279 @@
+package com.pyjtlk.waveloadview;
+
+import android.graphics.Color;
+
+import com.pyjtlk.waveloadview.core.WaveShape;
+
+/**
+ * 波形加载控件的不可变配置，可以在任意线程构建，通过{@link WaveLoadingView#setConfig}在下一帧开始前一次性生效
+ * 尺寸单位都是像素
+ */
+public final class WaveConfig {
+    private final String mText;
+    private final int mType;
+    private final int mLength;
+    private final int mWaveLength;
+    private final int mTextSize;
+    private final int mColor;
+    private final int mImageSize;
+    private final int mInterval;
+    private final int mWaveHeight;
+    private final int mRectRadius;
+    private final boolean mGhostEffect;
+    private final int mGhostAlphaMin;
+    private final int mGhostAlphaMax;
+    private final int mDuration;
+    private final WaveShape mShape;
+
+    private WaveConfig(Builder builder){
+        mText = builder.mText;
+        mType = builder.mType;
+        mLength = builder.mText != null ? builder.mText.length() : builder.mLength;
+        mWaveLength = builder.mWaveLength;
+        mTextSize = builder.mTextSize;
+        mColor = builder.mColor;
+        mImageSize = builder.mImageSize;
+        mInterval = builder.mInterval;
+        mWaveHeight = builder.mWaveHeight;
+        mRectRadius = WaveStyles.clampRectRadius(builder.mRectRadius,builder.mImageSize);
+        mGhostEffect = builder.mGhostEffect;
+        mGhostAlphaMin = builder.mGhostAlphaMin;
+        mGhostAlphaMax = builder.mGhostAlphaMax;
+        mDuration = builder.mDuration;
+        mShape = builder.mShape;
+    }
+
+    /**
+     * 文本，不为null时为文本风格，元素个数等于文本长度
+     */
+    public String getText(){
+        return mText;
+    }
+
+    /**
+     * 风格，设置了文本时为{@link WaveLoadingView#IMAGE_TYPE_TEXT}
+     */
+    public int getType(){
+        return mText != null ? WaveStyles.IMAGE_TYPE_TEXT : mType;
+    }
+
+    public int getLength(){
+        return mLength;
+    }
+
+    public int getWaveLength(){
+        return mWaveLength;
+    }
+
+    public int getTextSize(){
+        return mTextSize;
+    }
+
+    public int getColor(){
+        return mColor;
+    }
+
+    public int getImageSize(){
+        return mImageSize;
+    }
+
+    public int getInterval(){
+        return mInterval;
+    }
+
+    public int getWaveHeight(){
+        return mWaveHeight;
+    }
+
+    public int getRectRadius(){
+        return mRectRadius;
+    }
+
+    public boolean isGhostEffect(){
+        return mGhostEffect;
+    }
+
+    public int getGhostAlphaMin(){
+        return mGhostAlphaMin;
+    }
+
+    public int getGhostAlphaMax(){
+        return mGhostAlphaMax;
+    }
+
+    public int getDuration(){
+        return mDuration;
+    }
+
+    public WaveShape getWaveShape(){
+        return mShape;
+    }
+
+    /**
+     * 配置的构建器，默认值与布局属性的默认值相同
+     */
+    public static final class Builder{
+        private String mText;
+        private int mType = WaveLoadingView.IMAGE_TYPE_CIRCLE;
+        private int mLength = 3;
+        private int mWaveLength = 1;
+        private int mTextSize = WaveLoadingView.DEFAULT_TEXT_SIZE_SP;
+        private int mColor = Color.BLUE;
+        private int mImageSize = WaveLoadingView.DEFAULT_IMAGE_SIZE_DP;
+        private int mInterval = WaveLoadingView.DEFAULT_INTERVAL_DP;
+        private int mWaveHeight = WaveLoadingView.WAVE_HEIGHT_NORMAL;
+        private int mRectRadius;
+        private boolean mGhostEffect;
+        private int mGhostAlphaMin = WaveLoadingView.GHOST_ALPHA_MIN_DEFAULT;
+        private int mGhostAlphaMax = WaveLoadingView.GHOST_ALPHA_MAX_DEFAULT;
+        private int mDuration = WaveLoadingView.DEFAULT_DURATION_MS;
+        private WaveShape mShape = WaveShape.TRIANGLE;
+
+        public Builder(){
+        }
+
+        /**
+         * 以已有的配置为基础修改
+         * @param config 已有的配置
+         */
+        public Builder(WaveConfig config){
+            mText = config.mText;
+            mType = config.mType;
+            mLength = config.mLength;
+            mWaveLength = config.mWaveLength;
+            mTextSize = config.mTextSize;
+            mColor = config.mColor;
+            mImageSize = config.mImageSize;
+            mInterval = config.mInterval;
+            mWaveHeight = config.mWaveHeight;
+            mRectRadius = config.mRectRadius;
+            mGhostEffect = config.mGhostEffect;
+            mGhostAlphaMin = config.mGhostAlphaMin;
+            mGhostAlphaMax = config.mGhostAlphaMax;
+            mDuration = config.mDuration;
+            mShape = config.mShape;
+        }
+
+        /**
+         * 设置文本，设置后为文本风格，元素个数等于文本长度，设为null时恢复图形风格
+         */
+        public Builder setText(String text){
+            mText = text;
+            return this;
+        }
+
+        /**
+         * 设置图形风格，参考{@link WaveLoadingView#setType}，设置了文本时不生效
+         * 配置不包含自定义图片，{@link WaveLoadingView#IMAGE_TYPE_DRAWABLE}只有在控件已经设置了自定义图片时才生效，
+         * 否则控件保持原来的风格，之后{@link WaveLoadingView#getConfig()}返回的也是原来的风格
+         */
+        public Builder setType(int type){
+            mType = type;
+            return this;
+        }
+
+        public Builder setLength(int length){
+            mLength = length;
+            return this;
+        }
+
+        public Builder setWaveLength(int waveLength){
+            mWaveLength = waveLength;
+            return this;
+        }
+
+        public Builder setTextSize(int textSize){
+            mTextSize = textSize;
+            return this;
+        }
+
+        public Builder setColor(int color){
+            mColor = color;
+            return this;
+        }
+
+        public Builder setImageSize(int imageSize){
+            mImageSize = imageSize;
+            return this;
+        }
+
+        public Builder setInterval(int interval){
+            mInterval = interval;
+            return this;
+        }
+
+        /**
+         * 设置波形高度，参考{@link WaveLoadingView#WAVE_HEIGHT_NORMAL}
+         */
+        public Builder setWaveHeight(int waveHeight){
+            mWaveHeight = waveHeight;
+            return this;
+        }
+
+        public Builder setRectRadius(int rectRadius){
+            mRectRadius = rectRadius;
+            return this;
+        }
+
+        public Builder setGhostEffect(boolean ghostEffect){
+            mGhostEffect = ghostEffect;
+            return this;
+        }
+
+        public Builder setGhostAlpha(int minAlpha,int maxAlpha){
+            mGhostAlphaMin = minAlpha;
+            mGhostAlphaMax = maxAlpha;
+            return this;
+        }
+
+        public Builder setDuration(int duration){
+            mDuration = duration;
+            return this;
+        }
+
+        public Builder setWaveShape(WaveShape shape){
+            mShape = shape;
+            return this;
+        }
+
+        /**
+         * 检查参数并生成配置
+         * @throws IllegalArgumentException 参数不合法
+         */
+        public WaveConfig build(){
+            int length = mText != null ? mText.length() : mLength;
+            if(mWaveLength < 1 || mWaveLength + 2 > length){
+                throw new IllegalArgumentException("length must be at least waveLength + 2");
+            }
+
+            if(mText == null && (mType < WaveLoadingView.IMAGE_TYPE_CIRCLE || mType > WaveLoadingView.IMAGE_TYPE_DRAWABLE)){
+                throw new IllegalArgumentException("unknown type " + mType);
+            }
+
+            if(mWaveHeight < WaveLoadingView.WAVE_HEIGHT_SLIGHT || mWaveHeight > WaveLoadingView.WAVE_HEIGHT_LARGE){
+                throw new IllegalArgumentException("unknown wave height " + mWaveHeight);
+            }
+
+            if(mImageSize <= 0 || mTextSize <= 0 || mInterval < 0 || mDuration < 0 || mRectRadius < 0){
+                throw new IllegalArgumentException("sizes must not be negative");
+            }
+
+            if(mGhostAlphaMin < 0 || mGhostAlphaMin > mGhostAlphaMax || mGhostAlphaMax > WaveLoadingView.GHOST_ALPHA_MAX_DEFAULT){
+                throw new IllegalArgumentException("invalid ghost alpha range");
+            }
+
+            if(mShape == null){
+                throw new IllegalArgumentException("shape must not be null");
+            }
+            return new WaveConfig(this);
+        }
+
+        /**
+         * 不检查参数直接生成配置，用于读取控件当前的状态
+         * 布局属性没有经过{@link #build()}的检查，控件自身的状态不一定都能通过检查
+         */
+        WaveConfig snapshot(){
+            return new WaveConfig(this);
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.pyjtlk.waveloadview;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+
+import com.pyjtlk.waveloadview.core.WaveLayoutEngine;
+import com.pyjtlk.waveloadview.core.WaveRenderer;
+import com.pyjtlk.waveloadview.core.WaveShape;
+
+/**
+ * 波形加载动画的Drawable，风格与{@link WaveLoadingView}相同，不需要额外的控件，
+ * 可以设置给ImageView、TextView的复合图片、菜单图标等
+ * 动画通过{@link Drawable.Callback}调度，宿主控件不可见时自动暂停
+ * 所有方法都只能在主线程调用
+ */
+public class WaveLoadingDrawable extends Drawable implements Animatable,Runnable {
+    private final WaveLayoutEngine mEngine;
+    private final WaveRenderer mRenderer = new WaveRenderer();
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint.FontMetrics mFontMetrics = new Paint.FontMetrics();
+    private final CanvasWaveCanvas mWaveCanvas = new CanvasWaveCanvas(mPaint);
+
+    private String mText;
+    private int mType = WaveLoadingView.IMAGE_TYPE_CIRCLE;
+    private int mColor = Color.BLUE;
+    private int mAlpha = 255;
+    private int mImageSize = WaveLoadingView.DEFAULT_IMAGE_SIZE_DP;
+    private int mTextWidth;
+    private int mTextHeight;
+    private int mInterval = WaveLoadingView.DEFAULT_INTERVAL_DP;
+    private float mWaveOffset = 0.5f;
+    private int mRectRadius;
+    private boolean ghostEffect;
+    private int mDuration = WaveLoadingView.DEFAULT_DURATION_MS;
+    private Drawable mWaveDrawable;
+    private WaveLoadingView.AbsWaveDrawer mCustomWaveDrawer;
+    private WaveLoadingView.WaveControler mWaveControler;
+    private boolean running;
+
+    /**
+     * @param length 元素个数
+     * @param waveLength 波的宽度，元素个数至少要比波的宽度多2
+     */
+    public WaveLoadingDrawable(int length,int waveLength){
+        if(waveLength < 1 || waveLength + 2 > length){
+            throw new IllegalArgumentException("length must be at least waveLength + 2");
+        }
+
+        mEngine = new WaveLayoutEngine(length,waveLength);
+        mEngine.setGhostAlpha(WaveLoadingView.GHOST_ALPHA_MIN_DEFAULT,WaveLoadingView.GHOST_ALPHA_MAX_DEFAULT);
+    }
+
+    private int elementWidth(){
+        return mType == WaveStyles.IMAGE_TYPE_TEXT ? mTextWidth : mImageSize;
+    }
+
+    private int elementHeight(){
+        return mType == WaveStyles.IMAGE_TYPE_TEXT ? mTextHeight : mImageSize;
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return WaveLayoutEngine.measureWidth(mEngine.getLength(),elementWidth(),mInterval);
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return WaveLayoutEngine.measureHeight(mEngine.getWaveLength(),elementHeight(),mWaveOffset);
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        Rect bounds = getBounds();
+        if(bounds.isEmpty()){
+            return;
+        }
+
+        mEngine.prepareElementsX(bounds.left,elementWidth(),mInterval);
+        mEngine.prepareElementsY(bounds.bottom,elementHeight(),mWaveOffset);
+
+        mRenderer.setImageSize(mImageSize);
+        mRenderer.setRectRadius(mRectRadius);
+        mRenderer.setWaveBottom(bounds.bottom);
+        mRenderer.setGhostEffect(ghostEffect);
+        mRenderer.setTextHeight(mTextHeight);
+        mRenderer.clearClip();
+
+        mWaveCanvas.setCanvas(canvas);
+        mWaveCanvas.setText(mText);
+        mWaveCanvas.setDrawable(mWaveDrawable);
+        mWaveCanvas.setWaveDrawer(mCustomWaveDrawer,mImageSize);
+        mWaveCanvas.setAlphaScale(mAlpha);
+
+        mPaint.setColor(mColor);
+        mPaint.setAlpha(Color.alpha(mColor) * mAlpha / 255);
+        if(mType == WaveStyles.IMAGE_TYPE_TEXT){
+            mPaint.setTextSize(mTextWidth);
+            mPaint.getFontMetrics(mFontMetrics);
+            mRenderer.setTextBaseline(mTextHeight - mFontMetrics.bottom);
+        }
+        WaveStyles.draw(mType,mCustomWaveDrawer,mRenderer,mEngine,mWaveCanvas);
+    }
+
+    /**
+     * 波移动一步，并安排下一步
+     */
+    @Override
+    public void run() {
+        if(mWaveControler != null){
+            mEngine.setWaveStart(mWaveControler.onRefresh(mEngine.getWaveStart(),0,mEngine.getElementsTotal() - 1));
+        }else{
+            mEngine.moveWave();
+        }
+        invalidateSelf();
+
+        if(running){
+            scheduleSelf(this,SystemClock.uptimeMillis() + mDuration);
+        }
+    }
+
+    @Override
+    public void start() {
+        if(running){
+            return;
+        }
+
+        running = true;
+        scheduleSelf(this,SystemClock.uptimeMillis() + mDuration);
+    }
+
+    @Override
+    public void stop() {
+        if(!running){
+            return;
+        }
+
+        running = false;
+        unscheduleSelf(this);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 宿主不可见时暂停，重新可见时恢复
+     */
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        boolean changed = super.setVisible(visible, restart);
+        if(!visible){
+            if(running){
+                unscheduleSelf(this);
+            }
+        }else if(running && (changed || restart)){
+            unscheduleSelf(this);
+            scheduleSelf(this,SystemClock.uptimeMillis() + mDuration);
+        }
+        return changed;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if(mAlpha != alpha){
+            mAlpha = alpha;
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public int getAlpha() {
+        return mAlpha;
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    /**
+     * 设置波的风格，参考{@link WaveLoadingView#setType}
+     * @param type 波的风格
+     */
+    public void setType(int type){
+        if(type < WaveLoadingView.IMAGE_TYPE_CIRCLE || type > WaveLoadingView.IMAGE_TYPE_DRAWABLE){
+            return;
+        }
+
+        if(type == WaveLoadingView.IMAGE_TYPE_DRAWABLE && mWaveDrawable == null){
+            return;
+        }
+
+        mType = type;
+        invalidateSelf();
+    }
+
+    /**
+     * 改用文本风格，每个字符是一个元素，文本长度需要和元素个数相同
+     * @param text 文本
+     * @param textSize 文字大小，单位为像素
+     */
+    public void setText(String text,int textSize){
+        if(text == null || text.length() != mEngine.getLength()){
+            return;
+        }
+
+        mText = text;
+        mTextWidth = textSize;
+        mTextHeight = WaveStyles.textWidthToHtight(textSize);
+        mType = WaveStyles.IMAGE_TYPE_TEXT;
+        invalidateSelf();
+    }
+
+    /**
+     * 设置元素的颜色
+     * @param color 元素的颜色
+     */
+    public void setColor(int color){
+        mColor = color;
+        invalidateSelf();
+    }
+
+    /**
+     * 设置元素的尺寸，单位为像素
+     * @param imageSize 元素的尺寸
+     */
+    public void setImageSize(int imageSize){
+        if(imageSize <= 0){
+            return;
+        }
+
+        mImageSize = imageSize;
+        mRectRadius = WaveStyles.clampRectRadius(mRectRadius,mImageSize);
+        invalidateSelf();
+    }
+
+    /**
+     * 设置元素间的间隔，单位为像素
+     * @param interval 元素间的间隔
+     */
+    public void setInterval(int interval){
+        if(interval < 0){
+            return;
+        }
+
+        mInterval = interval;
+        invalidateSelf();
+    }
+
+    /**
+     * 设置波形高度
+     * {@link WaveLoadingView#WAVE_HEIGHT_SLIGHT}
+     * {@link WaveLoadingView#WAVE_HEIGHT_NORMAL}
+     * {@link WaveLoadingView#WAVE_HEIGHT_BIG}
+     * {@link WaveLoadingView#WAVE_HEIGHT_LARGE}
+     * @param waveHeight 波形高度
+     */
+    public void setWaveHeight(int waveHeight){
+        switch(waveHeight){
+            case WaveLoadingView.WAVE_HEIGHT_SLIGHT:
+                mWaveOffset = 0.25f;
+                break;
+
+            case WaveLoadingView.WAVE_HEIGHT_NORMAL:
+                mWaveOffset = 0.5f;
+                break;
+
+            case WaveLoadingView.WAVE_HEIGHT_BIG:
+                mWaveOffset = 0.75f;
+                break;
+
+            case WaveLoadingView.WAVE_HEIGHT_LARGE:
+                mWaveOffset = 1f;
+                break;
+        }
+        invalidateSelf();
+    }
+
+    /**
+     * 设置长方形和正方形风格的圆角半径
+     * @param rectRadius 圆角半径
+     */
+    public void setRectRadius(int rectRadius){
+        mRectRadius = WaveStyles.clampRectRadius(rectRadius,mImageSize);
+        invalidateSelf();
+    }
+
+    /**
+     * 设置动画间隔时间，这个时间是指波每移动一步的时间，单位为毫秒
+     * @param duration 动画间隔时间
+     */
+    public void setDuration(int duration){
+        if(duration < 0){
+            return;
+        }
+
+        mDuration = duration;
+    }
+
+    /**
+     * 启用幻影效果
+     * @param allowGhostEffect 是否启动幻影效果
+     */
+    public void setGhostEffect(boolean allowGhostEffect){
+        ghostEffect = allowGhostEffect;
+        invalidateSelf();
+    }
+
+    /**
+     * 设置幻影效果透明度，参考{@link WaveLoadingView#setGhostAlpha}
+     * @param minAlpha 透明度下限
+     * @param maxAlpha 透明度上限
+     */
+    public void setGhostAlpha(int minAlpha,int maxAlpha){
+        if(minAlpha > maxAlpha || minAlpha < 0 || maxAlpha > WaveLoadingView.GHOST_ALPHA_MAX_DEFAULT){
+            return;
+        }
+
+        mEngine.setGhostAlpha(minAlpha,maxAlpha);
+        invalidateSelf();
+    }
+
+    /**
+     * 设置波形，参考{@link WaveLoadingView#setWaveShape}
+     * @param shape 波形
+     */
+    public void setWaveShape(WaveShape shape){
+        if(shape == null){
+            return;
+        }
+
+        mEngine.setWaveShape(shape);
+        invalidateSelf();
+    }
+
+    /**
+     * 设置元素自定义图片
+     * @param drawable 自定义图标
+     */
+    public void setWaveDrawable(Drawable drawable){
+        if(drawable == null){
+            return;
+        }
+
+        mWaveDrawable = drawable.mutate();
+        mType = WaveLoadingView.IMAGE_TYPE_DRAWABLE;
+        invalidateSelf();
+    }
+
+    /**
+     * 设置波绘制器
+     * @param waveDrawer 波绘制器
+     */
+    public void setCustomWaveDrawer(WaveLoadingView.AbsWaveDrawer waveDrawer){
+        mCustomWaveDrawer = waveDrawer;
+        invalidateSelf();
+    }
+
+    /**
+     * 设置波控制器
+     * @param waveControler 波控制器
+     */
+    public void setWaveControler(WaveLoadingView.WaveControler waveControler){
+        mWaveControler = waveControler;
+    }
+}
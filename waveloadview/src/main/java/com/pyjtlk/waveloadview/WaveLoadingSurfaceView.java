@@ -0,0 +1,674 @@
+package com.pyjtlk.waveloadview;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import com.pyjtlk.waveloadview.core.WaveLayoutEngine;
+import com.pyjtlk.waveloadview.core.WaveRenderer;
+import com.pyjtlk.waveloadview.core.WaveShape;
+
+import java.util.ArrayList;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 在独立渲染线程上移动和绘制波的{@link WaveLoadingView}，主线程繁忙时动画也不会卡顿
+ * 属性和风格与{@link WaveLoadingView}相同，布局和绘制逻辑也是共用的
+ * 所有设置方法都只能在主线程调用，设置会投递到渲染线程，在下一帧开始前生效
+ * 自定义绘制器{@link WaveLoadingView.AbsWaveDrawer}和自定义图片会在渲染线程上使用
+ * Surface默认位于窗口下方，透明的区域透出的是Surface下面的内容而不是窗口背景；
+ * 需要叠在窗口内容上透明显示时可以调用{@link #setZOrderOnTop(boolean)}，但Surface会盖住整个窗口中与它重叠的内容
+ */
+public class WaveLoadingSurfaceView extends SurfaceView implements SurfaceHolder.Callback {
+    /**
+     * 以下字段只在主线程使用，用于测量
+     */
+    private String mText;
+    private int mType;
+    private int mLength;
+    private int mWaveLength;
+    private float mWaveOffset;
+    private int mImageSize;
+    private int mTextWidth;
+    private int mTextHeight;
+    private int mInterval;
+    private boolean mStarted = true;
+
+    private RenderThread mRenderThread;
+
+    /**
+     * 渲染线程没有启动时，设置直接写入这里；启动后只由渲染线程访问
+     */
+    private final RenderState mState = new RenderState();
+
+    /**
+     * 渲染线程持有的状态
+     */
+    private static final class RenderState{
+        WaveLayoutEngine engine;
+        final WaveRenderer renderer = new WaveRenderer();
+        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        final Paint.FontMetrics fontMetrics = new Paint.FontMetrics();
+        CanvasWaveCanvas canvas;
+        String text;
+        int type;
+        int color;
+        int imageSize;
+        int textWidth;
+        int textHeight;
+        int interval;
+        float waveOffset;
+        int rectRadius;
+        boolean ghostEffect;
+        long stepNanos;
+        Drawable drawable;
+        WaveLoadingView.AbsWaveDrawer waveDrawer;
+        WaveLoadingView.WaveControler waveControler;
+        int left;
+        int bottom;
+        boolean ticking;
+        boolean dirty = true;
+        long lastStepNanos;
+    }
+
+    public WaveLoadingSurfaceView(Context context) {
+        this(context,null);
+    }
+
+    public WaveLoadingSurfaceView(Context context, @Nullable AttributeSet attrs) {
+        this(context,attrs,0);
+    }
+
+    public WaveLoadingSurfaceView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init(context,attrs);
+    }
+
+    private void init(Context context,@Nullable AttributeSet attrs){
+        WaveAttributes attributes = WaveAttributes.obtain(context,attrs);
+
+        mText = attributes.mText;
+        mType = attributes.mType;
+        mWaveLength = attributes.mWaveLength;
+        Drawable drawable = attributes.newCustomImage(context.getResources());
+        mInterval = attributes.mInterval;
+        mImageSize = attributes.mImageSize;
+        mTextWidth = attributes.mTextSize;
+        mLength = attributes.mLength;
+        mWaveOffset = WaveStyles.waveOffsetOf(attributes.mWaveHeight);
+
+        if(mText != null && (mText.length() - mWaveLength) >= 2){
+            mLength = mText.length();
+            mTextHeight = WaveStyles.textWidthToHtight(mTextWidth);
+            mType = WaveStyles.IMAGE_TYPE_TEXT;
+        }
+
+        if(drawable != null){
+            mType = WaveLoadingView.IMAGE_TYPE_DRAWABLE;
+        }
+
+        int rectRadius = WaveStyles.clampRectRadius(attributes.mRectRadius,mImageSize);
+        int ghostAlphaMin = WaveStyles.ghostAlphaMinOf(attributes.mGhostAlphaMin,attributes.mGhostAlphaMax);
+        int ghostAlphaMax = WaveStyles.ghostAlphaMaxOf(attributes.mGhostAlphaMin,attributes.mGhostAlphaMax);
+
+        RenderState state = mState;
+        state.engine = new WaveLayoutEngine(mLength,mWaveLength);
+        state.engine.setGhostAlpha(ghostAlphaMin,ghostAlphaMax);
+        state.engine.setWaveShape(WaveStyles.waveShape(attributes.mWaveShape));
+        state.canvas = new CanvasWaveCanvas(state.paint);
+        state.text = mText;
+        state.type = mType;
+        state.color = attributes.mColor;
+        state.imageSize = mImageSize;
+        state.textWidth = mTextWidth;
+        state.textHeight = mTextHeight;
+        state.interval = mInterval;
+        state.waveOffset = mWaveOffset;
+        state.rectRadius = rectRadius;
+        state.ghostEffect = attributes.mGhostEffect;
+        state.stepNanos = Math.max(attributes.mDuration,1) * 1000000L;
+        state.drawable = drawable == null ? null : drawable.mutate();
+
+        getHolder().setFormat(PixelFormat.TRANSLUCENT);
+        getHolder().addCallback(this);
+        //只放在其他SurfaceView（例如视频）上方，仍然位于窗口下方，不会盖住工具栏、弹窗和其他控件
+        setZOrderMediaOverlay(true);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int elementWidth = mType == WaveStyles.IMAGE_TYPE_TEXT ? mTextWidth : mImageSize;
+        int elementHeight = mType == WaveStyles.IMAGE_TYPE_TEXT ? mTextHeight : mImageSize;
+
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int height = MeasureSpec.getSize(heightMeasureSpec);
+        int wrapWidth = WaveLayoutEngine.measureWidth(mLength,elementWidth,mInterval) +
+                getPaddingLeft() + getPaddingRight();
+        int wrapHeight = WaveLayoutEngine.measureHeight(mWaveLength,elementHeight,mWaveOffset) +
+                getPaddingTop() + getPaddingBottom();
+
+        if(MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.EXACTLY){
+            width = wrapWidth;
+        }
+
+        if(MeasureSpec.getMode(heightMeasureSpec) != MeasureSpec.EXACTLY){
+            height = wrapHeight;
+        }
+
+        setMeasuredDimension(width,height);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mRenderThread = new RenderThread(mState);
+        mRenderThread.start();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        RenderThread thread = mRenderThread;
+        mRenderThread = null;
+        thread.quit();
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        final RenderThread thread = mRenderThread;
+        if(thread == null){
+            return;
+        }
+
+        final boolean started = mStarted;
+        thread.setSurface(holder);
+        thread.post(new Runnable() {
+            @Override
+            public void run() {
+                mState.dirty = true;
+                thread.setTicking(started);
+            }
+        });
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        final int left = getPaddingLeft();
+        final int bottom = height - getPaddingBottom();
+        applyOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mState.left = left;
+                mState.bottom = bottom;
+            }
+        });
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        final RenderThread thread = mRenderThread;
+        if(thread == null){
+            return;
+        }
+
+        //返回后Surface就会销毁，setSurface会等渲染线程画完当前这一帧
+        thread.setSurface(null);
+        thread.post(new Runnable() {
+            @Override
+            public void run() {
+                thread.setTicking(false);
+            }
+        });
+    }
+
+    /**
+     * 把设置交给渲染线程，渲染线程还没有启动时直接执行
+     */
+    private void runOnRenderThread(Runnable action){
+        RenderThread thread = mRenderThread;
+        if(thread == null){
+            action.run();
+        }else{
+            thread.post(action);
+        }
+    }
+
+    /**
+     * 渲染线程，使用自己的Choreographer跟随屏幕刷新移动和绘制波
+     */
+    private static final class RenderThread extends HandlerThread implements Choreographer.FrameCallback{
+        private final RenderState mState;
+        private final Object mSurfaceLock = new Object();
+        private SurfaceHolder mSurface;
+        private Handler mHandler;
+        private Choreographer mChoreographer;
+        private boolean mFramePosted;
+
+        /**
+         * 线程启动前投递的设置
+         */
+        private final ArrayList<Runnable> mPending = new ArrayList<>();
+
+        RenderThread(RenderState state){
+            super("WaveLoadingRender",Process.THREAD_PRIORITY_DISPLAY);
+            mState = state;
+        }
+
+        @Override
+        protected void onLooperPrepared() {
+            Runnable pending[];
+            synchronized(mPending){
+                mHandler = new Handler(getLooper());
+                mChoreographer = Choreographer.getInstance();
+                pending = mPending.toArray(new Runnable[mPending.size()]);
+                mPending.clear();
+            }
+            for(Runnable action : pending){
+                action.run();
+            }
+        }
+
+        void post(Runnable action){
+            synchronized(mPending){
+                if(mHandler == null){
+                    mPending.add(action);
+                }else{
+                    mHandler.post(action);
+                }
+            }
+        }
+
+        void quit(){
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    setTicking(false);
+                }
+            });
+            quitSafely();
+            boolean interrupted = false;
+            while(isAlive()){
+                try{
+                    join();
+                }catch (InterruptedException e){
+                    interrupted = true;
+                }
+            }
+            if(interrupted){
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void setSurface(SurfaceHolder surface){
+            synchronized(mSurfaceLock){
+                mSurface = surface;
+            }
+        }
+
+        void setTicking(boolean ticking){
+            mState.ticking = ticking;
+            mState.lastStepNanos = 0;
+            requestFrame();
+        }
+
+        void requestFrame(){
+            if(!mFramePosted && mChoreographer != null){
+                mFramePosted = true;
+                mChoreographer.postFrameCallback(this);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mFramePosted = false;
+            RenderState state = mState;
+
+            if(state.ticking){
+                if(state.lastStepNanos == 0){
+                    state.lastStepNanos = frameTimeNanos;
+                }
+
+                long elapsed = frameTimeNanos - state.lastStepNanos;
+                if(elapsed >= state.stepNanos){
+                    long steps = elapsed / state.stepNanos;
+                    state.lastStepNanos += steps * state.stepNanos;
+
+                    WaveLayoutEngine engine = state.engine;
+                    int elementsTotal = engine.getElementsTotal();
+                    long count = state.waveControler == null ? steps % elementsTotal : Math.min(steps,elementsTotal);
+                    for(int i = 0;i < count;i++){
+                        if(state.waveControler != null){
+                            engine.setWaveStart(state.waveControler.onRefresh(engine.getWaveStart(),0,elementsTotal - 1));
+                        }else{
+                            engine.moveWave();
+                        }
+                    }
+                    state.dirty = true;
+                }
+            }
+
+            if(state.dirty){
+                state.dirty = !draw();
+            }
+
+            if(state.ticking || state.dirty){
+                requestFrame();
+            }
+        }
+
+        /**
+         * @return 是否成功绘制到Surface上
+         */
+        private boolean draw(){
+            synchronized(mSurfaceLock){
+                if(mSurface == null){
+                    return false;
+                }
+
+                Canvas canvas = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                        ? mSurface.lockHardwareCanvas()
+                        : mSurface.lockCanvas();
+                if(canvas == null){
+                    return false;
+                }
+
+                try{
+                    canvas.drawColor(Color.TRANSPARENT,PorterDuff.Mode.CLEAR);
+                    drawWave(canvas);
+                }finally {
+                    mSurface.unlockCanvasAndPost(canvas);
+                }
+                return true;
+            }
+        }
+
+        private void drawWave(Canvas canvas){
+            RenderState state = mState;
+            WaveLayoutEngine engine = state.engine;
+            WaveRenderer renderer = state.renderer;
+            boolean text = state.type == WaveStyles.IMAGE_TYPE_TEXT;
+            int elementWidth = text ? state.textWidth : state.imageSize;
+            int elementHeight = text ? state.textHeight : state.imageSize;
+
+            engine.prepareElementsX(state.left,elementWidth,state.interval);
+            engine.prepareElementsY(state.bottom,elementHeight,state.waveOffset);
+
+            renderer.setImageSize(state.imageSize);
+            renderer.setRectRadius(state.rectRadius);
+            renderer.setWaveBottom(state.bottom);
+            renderer.setGhostEffect(state.ghostEffect);
+            renderer.setTextHeight(state.textHeight);
+            renderer.clearClip();
+
+            CanvasWaveCanvas waveCanvas = state.canvas;
+            waveCanvas.setCanvas(canvas);
+            waveCanvas.setText(state.text);
+            waveCanvas.setDrawable(state.drawable);
+            waveCanvas.setWaveDrawer(state.waveDrawer,state.imageSize);
+
+            state.paint.setColor(state.color);
+            if(text){
+                state.paint.setTextSize(state.textWidth);
+                state.paint.getFontMetrics(state.fontMetrics);
+                renderer.setTextBaseline(state.textHeight - state.fontMetrics.bottom);
+            }
+            WaveStyles.draw(state.type,state.waveDrawer,renderer,engine,waveCanvas);
+        }
+    }
+
+    /**
+     * 把设置交给渲染线程，设置完成后重绘
+     */
+    private void applyOnRenderThread(final Runnable change){
+        final RenderThread thread = mRenderThread;
+        if(thread == null){
+            change.run();
+            mState.dirty = true;
+            return;
+        }
+
+        thread.post(new Runnable() {
+            @Override
+            public void run() {
+                change.run();
+                mState.dirty = true;
+                thread.requestFrame();
+            }
+        });
+    }
+
+    /**
+     * 启动控件动画，控件默认是启动的
+     */
+    public void start(){
+        mStarted = true;
+        applyTicking(true);
+    }
+
+    /**
+     * 暂停控件动画
+     */
+    public void pause(){
+        mStarted = false;
+        applyTicking(false);
+    }
+
+    private void applyTicking(final boolean ticking){
+        final RenderThread thread = mRenderThread;
+        if(thread == null){
+            return;
+        }
+
+        thread.post(new Runnable() {
+            @Override
+            public void run() {
+                if(mState.ticking != ticking){
+                    thread.setTicking(ticking);
+                }
+            }
+        });
+    }
+
+    /**
+     * 动画是否处于启动状态
+     * @return 动画是否启动
+     */
+    public boolean isStarted(){
+        return mStarted;
+    }
+
+    /**
+     * 设置元素的颜色
+     * @param color 元素的颜色
+     */
+    public void setColor(final int color){
+        applyOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mState.color = color;
+            }
+        });
+    }
+
+    /**
+     * 设置波的风格，参考{@link WaveLoadingView#setType}
+     * @param type 波的风格
+     */
+    public void setType(final int type){
+        if(mType == WaveStyles.IMAGE_TYPE_TEXT || type < WaveLoadingView.IMAGE_TYPE_CIRCLE || type > WaveLoadingView.IMAGE_TYPE_DRAWABLE){
+            return;
+        }
+
+        mType = type;
+        applyOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mState.type = type;
+            }
+        });
+    }
+
+    /**
+     * 设置动画间隔时间，单位为毫秒
+     * @param duration 动画间隔时间
+     */
+    public void setDuration(int duration){
+        if(duration < 0){
+            return;
+        }
+
+        final long stepNanos = Math.max(duration,1) * 1000000L;
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mState.stepNanos = stepNanos;
+            }
+        });
+    }
+
+    /**
+     * 启用幻影效果
+     * @param ghostEffect 是否启动幻影效果
+     */
+    public void setGhostEffect(final boolean ghostEffect){
+        applyOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mState.ghostEffect = ghostEffect;
+            }
+        });
+    }
+
+    /**
+     * 设置幻影效果透明度，参考{@link WaveLoadingView#setGhostAlpha}
+     * @param minAlpha 透明度下限
+     * @param maxAlpha 透明度上限
+     */
+    public void setGhostAlpha(final int minAlpha,final int maxAlpha){
+        if(minAlpha > maxAlpha || minAlpha < 0 || maxAlpha > WaveLoadingView.GHOST_ALPHA_MAX_DEFAULT){
+            return;
+        }
+
+        applyOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mState.engine.setGhostAlpha(minAlpha,maxAlpha);
+            }
+        });
+    }
+
+    /**
+     * 设置波形，参考{@link WaveLoadingView#setWaveShape}
+     * @param shape 波形
+     */
+    public void setWaveShape(final WaveShape shape){
+        if(shape == null){
+            return;
+        }
+
+        applyOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mState.engine.setWaveShape(shape);
+            }
+        });
+    }
+
+    /**
+     * 设置波的宽度，参考{@link WaveLoadingView#setWaveLength}
+     * @param waveLength 波的宽度
+     */
+    public void setWaveLength(final int waveLength){
+        if(waveLength < 1 || waveLength + 2 > mLength){
+            return;
+        }
+
+        mWaveLength = waveLength;
+        final int length = mLength;
+        applyOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mState.engine.setup(length,waveLength);
+            }
+        });
+        requestLayout();
+    }
+
+    /**
+     * 设置元素间的间隔
+     * @param interval 元素间的间隔
+     */
+    public void setInterval(final int interval){
+        if(interval < 0){
+            return;
+        }
+
+        mInterval = interval;
+        applyOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mState.interval = interval;
+            }
+        });
+        requestLayout();
+    }
+
+    /**
+     * 设置元素自定义图片，图片会在渲染线程上绘制，设置后不要再在其他线程修改它
+     * @param drawable 自定义图标
+     */
+    public void setWaveDrawable(Drawable drawable){
+        if(drawable == null){
+            return;
+        }
+
+        final Drawable mutated = drawable.mutate();
+        mType = WaveLoadingView.IMAGE_TYPE_DRAWABLE;
+        applyOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mState.drawable = mutated;
+                mState.type = WaveLoadingView.IMAGE_TYPE_DRAWABLE;
+            }
+        });
+    }
+
+    /**
+     * 设置波绘制器，绘制器会在渲染线程上调用
+     * @param waveDrawer 波绘制器
+     */
+    public void setCustomWaveDrawer(final WaveLoadingView.AbsWaveDrawer waveDrawer){
+        applyOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mState.waveDrawer = waveDrawer;
+            }
+        });
+    }
+
+    /**
+     * 设置波控制器，控制器会在渲染线程上调用
+     * @param waveControler 波控制器
+     */
+    public void setWaveControler(final WaveLoadingView.WaveControler waveControler){
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mState.waveControler = waveControler;
+            }
+        });
+    }
+}
@@ -1,19 +1,38 @@
 package com.pyjtlk.waveloadview;
 
+import android.app.ActivityManager;
+import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.content.res.TypedArray;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.os.Handler;
 import android.os.Message;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.util.AttributeSet;
-import android.util.TypedValue;
 import android.view.View;
 import android.view.ViewTreeObserver;
+
+import com.pyjtlk.waveloadview.core.AlphaBatchCanvas;
+import com.pyjtlk.waveloadview.core.AmplitudeRingBuffer;
+import com.pyjtlk.waveloadview.core.QualityGovernor;
+import com.pyjtlk.waveloadview.core.RenderKey;
+import com.pyjtlk.waveloadview.core.WaveCanvas;
+import com.pyjtlk.waveloadview.core.WaveClock;
+import com.pyjtlk.waveloadview.core.WaveDiskCache;
+import com.pyjtlk.waveloadview.core.WaveFrameStats;
+import com.pyjtlk.waveloadview.core.WaveLayoutEngine;
+import com.pyjtlk.waveloadview.core.WaveRenderer;
+import com.pyjtlk.waveloadview.core.WaveShape;
+
 import java.lang.ref.SoftReference;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import androidx.annotation.Nullable;
 
 public class WaveLoadingView extends View {
@@ -100,7 +119,35 @@ public class WaveLoadingView extends View {
      */
     public static final int GHOST_ALPHA_MIN_DEFAULT = 100;
 
+    /**
+     * 动画驱动方式：Handler按固定延时发送消息，每条消息移动一步
+     */
+    public static final int ANIM_MODE_HANDLER = 0;
+
+    /**
+     * 动画驱动方式：跟随屏幕刷新，所有控件共用一个Choreographer回调，按流逝的时间移动波
+     */
+    public static final int ANIM_MODE_VSYNC = 1;
+
+    /**
+     * 计时方式：每一步处理完后再延时一步的时间，处理的延迟会累积，默认方式
+     */
+    public static final int CLOCK_MODE_DELAY = 0;
+
+    /**
+     * 计时方式：波的位置由单调时钟和开始时间决定，回调迟到时直接跳到应有的位置，速度不受主线程负载影响
+     */
+    public static final int CLOCK_MODE_FIXED_RATE = 1;
+
+    /**
+     * 计时方式：与{@link #CLOCK_MODE_FIXED_RATE}相同，但所有控件以时钟的零点为起点，
+     * 速度和元素个数相同的控件不论何时开始都保持同一相位
+     */
+    public static final int CLOCK_MODE_SHARED = 2;
+
     private static final int ANIM_MESSAGE = 1001;
+    private static final int AMPLITUDE_BUFFER_SIZE = 256;
+    private static volatile WaveDiskCache sDiskCache;
     private String mText;
     private int mColor;
     private int mType;
@@ -110,6 +157,19 @@ public class WaveLoadingView extends View {
     private int mWaveHeight;
     private Drawable mCustomWaveDrawable;
     private int mDuration;
+    private long mStepNanos;
+    private long mLastStepNanos;
+    private float mFraction;
+    private int mFractionLevel;
+    private int mAnimMode;
+    private int mClockMode;
+    private long mClockOrigin;
+    private long mClockPeriod;
+    private long mClockStep;
+    private boolean mInterpolate;
+    private boolean mContinuous;
+    private float mPhase;
+    private boolean mAutoFit;
     private int mInterval;
     private int mImageSize;
     private int mTextWidth;
@@ -118,16 +178,45 @@ public class WaveLoadingView extends View {
     private int mGhostAlphaMax = 255;
     private int mGhostAlphaMin = 100;
     private Paint mPaint;
-    private int mWaveStart;
-    private int mDisplayStart;
-    private int mDisplayEnd;
-    private Element mElements[];
+    private final Paint.FontMetrics mFontMetrics = new Paint.FontMetrics();
+    private WaveLayoutEngine mEngine;
     private WaveControler mWaveControler;
     private boolean running;
-    private int mWaveAlpha[];
+    private boolean mStarted = true;
+    private final Rect mVisibleRect = new Rect();
+    private final Rect mClipRect = new Rect();
+    private VisibilityListener mVisibilityListener;
     private boolean ghostEffect;
     private AbsWaveDrawer mCustomWaveDrawer;
-    private Rect mCustomWaveRect;
+    private WaveRenderer mRenderer;
+    private CanvasWaveCanvas mWaveCanvas;
+    private SpriteAtlas mSpriteAtlas;
+    private BakedSheet mBakedSheet;
+    private final RenderKey mRenderKey = new RenderKey();
+    private AlphaBatchCanvas mBatchCanvas;
+    private WaveFrameStats mFrameStats;
+    private OnFrameStatsListener mOnFrameStatsListener;
+    private QualityGovernor mQualityGovernor;
+    private OnQualityChangeListener mOnQualityChangeListener;
+    private int mQuality = QualityGovernor.QUALITY_HIGH;
+    private PowerSaveReceiver mPowerSaveReceiver;
+    private boolean mFrameBaked;
+    private final AmplitudeRingBuffer mAmplitudeBuffer = new AmplitudeRingBuffer(AMPLITUDE_BUFFER_SIZE);
+    private final AtomicBoolean mInvalidatePending = new AtomicBoolean();
+    private volatile boolean mAmplitudeInput;
+    private volatile float mProgress = -1;
+    private float mAmplitudes[];
+    private WaveCanvas mDrawCanvas;
+    private final AtomicReference<WaveConfig> mPendingConfig = new AtomicReference<>();
+    private final Runnable mApplyConfigRunnable = new Runnable() {
+        @Override
+        public void run() {
+            WaveConfig config = mPendingConfig.getAndSet(null);
+            if(config != null){
+                applyConfig(config);
+            }
+        }
+    };
 
     /**
      * 波绘制器，重写这个类可以实现自定义的波形
@@ -136,12 +225,6 @@ public class WaveLoadingView extends View {
         protected abstract void onDrawWave(Canvas canvas, Paint paint,Rect elementRect, int imageSize);
     }
 
-    private class Element{
-        int y;
-        int x;
-        int alpha;
-    }
-
     private static final class AnimHandler extends Handler{
         private SoftReference<WaveLoadingView> mView;
 
@@ -156,13 +239,60 @@ public class WaveLoadingView extends View {
                 view.refreshFrame();
             }
         }
+    }
+
+    private AnimHandler mAnimHandler = new AnimHandler(this);
+
+    private static final class VsyncDriver implements WaveTicker.Callback{
+        private SoftReference<WaveLoadingView> mView;
+
+        private VsyncDriver(WaveLoadingView view){
+            mView = new SoftReference<>(view);
+        }
+
+        @Override
+        public void onTick(long frameTimeNanos) {
+            WaveLoadingView view = mView.get();
+            if(view != null){
+                Trace.beginSection("WaveLoadingView#tick");
+                try{
+                    view.onVsyncFrame(frameTimeNanos);
+                }finally {
+                    Trace.endSection();
+                }
+            }else{
+                WaveTicker.getInstance().unregister(this);
+            }
+        }
+    }
+
+    private VsyncDriver mVsyncDriver = new VsyncDriver(this);
+
+    /**
+     * 滚动或重新布局后检查控件是否还在屏幕上
+     */
+    private final class VisibilityListener implements ViewTreeObserver.OnScrollChangedListener,
+            ViewTreeObserver.OnGlobalLayoutListener{
+        @Override
+        public void onScrollChanged() {
+            updateRunning();
+        }
 
-        private void recycle(){
-            mView.clear();
+        @Override
+        public void onGlobalLayout() {
+            updateRunning();
         }
     }
 
-    private AnimHandler mAnimHandler = new AnimHandler(this);
+    /**
+     * 动画运行期间省电模式切换时重新设置画质的最低档位
+     */
+    private final class PowerSaveReceiver extends BroadcastReceiver{
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            updateQualityFloor();
+        }
+    }
 
     /**
      * 波控制类，可以用于控制波的移动方向和移动大小
@@ -179,8 +309,29 @@ public class WaveLoadingView extends View {
         int onRefresh(int currentPostion,int start,int end);
     }
 
+    /**
+     * 帧统计监听器，每绘制一帧回调一次
+     */
+    public interface OnFrameStatsListener{
+        /**
+         * @param stats 累计的帧统计，只能在回调中读取，不要保存
+         */
+        void onFrameStats(WaveFrameStats stats);
+    }
+
+    /**
+     * 画质档位变化监听器
+     */
+    public interface OnQualityChangeListener{
+        /**
+         * @param quality 新的档位，见{@link QualityGovernor#QUALITY_HIGH}等常量
+         */
+        void onQualityChanged(int quality);
+    }
+
     public WaveLoadingView(Context context) {
         super(context);
+        init(context,null);
     }
 
     public WaveLoadingView(Context context, @Nullable AttributeSet attrs) {
@@ -199,49 +350,41 @@ public class WaveLoadingView extends View {
     }
 
     private void init(Context context, @Nullable AttributeSet attrs){
-        TypedArray typedArray = context.obtainStyledAttributes(attrs,R.styleable.WaveLoadingView);
-
-        mText = typedArray.getString(R.styleable.WaveLoadingView_text);
-        mColor = typedArray.getColor(R.styleable.WaveLoadingView_color, Color.BLUE);
-        mType = typedArray.getInt(R.styleable.WaveLoadingView_imageWaveType,IMAGE_TYPE_CIRCLE);
-        mWaveLength = typedArray.getInt(R.styleable.WaveLoadingView_waveLength,1);
-        mWaveHeight = typedArray.getInt(R.styleable.WaveLoadingView_waveHeight,WAVE_HEIGHT_NORMAL);
-        mCustomWaveDrawable = typedArray.getDrawable(R.styleable.WaveLoadingView_customImage);
-        mDuration = typedArray.getInt(R.styleable.WaveLoadingView_duration,DEFAULT_DURATION_MS);
-        mInterval = typedArray.getDimensionPixelSize(R.styleable.WaveLoadingView_interval,dp2px(DEFAULT_INTERVAL_DP));
-        mImageSize = typedArray.getDimensionPixelSize(R.styleable.WaveLoadingView_imageSize,dp2px(DEFAULT_IMAGE_SIZE_DP));
-        mTextWidth = typedArray.getDimensionPixelSize(R.styleable.WaveLoadingView_textSize,sp2px(DEFAULT_TEXT_SIZE_SP));
-        mLength = typedArray.getInt(R.styleable.WaveLoadingView_length,mWaveLength + 2);
-        mRectRadius = typedArray.getDimensionPixelSize(R.styleable.WaveLoadingView_rectRadius,0);
-        ghostEffect = typedArray.getBoolean(R.styleable.WaveLoadingView_ghostEffect,false);
-        mGhostAlphaMax = typedArray.getInt(R.styleable.WaveLoadingView_ghostAlphaMax,GHOST_ALPHA_MAX_DEFAULT);
-        mGhostAlphaMin = typedArray.getInt(R.styleable.WaveLoadingView_ghostAlphaMin,GHOST_ALPHA_MIN_DEFAULT);
-
-        typedArray.recycle();
-
-        switch(mWaveHeight){
-            case WAVE_HEIGHT_SLIGHT:
-                mWaveOffset = 0.25f;
-                break;
-
-            case WAVE_HEIGHT_NORMAL:
-                mWaveOffset = 0.5f;
-                break;
-
-            case WAVE_HEIGHT_BIG:
-                mWaveOffset = 0.75f;
-                break;
-
-            case WAVE_HEIGHT_LARGE:
-                mWaveOffset = 1f;
-                break;
-        }
+        WaveAttributes attributes = WaveAttributes.obtain(context,attrs);
+
+        mText = attributes.mText;
+        mColor = attributes.mColor;
+        mType = attributes.mType;
+        mWaveLength = attributes.mWaveLength;
+        mWaveHeight = attributes.mWaveHeight;
+        mCustomWaveDrawable = attributes.newCustomImage(context.getResources());
+        mDuration = attributes.mDuration;
+        mInterval = attributes.mInterval;
+        mImageSize = attributes.mImageSize;
+        mTextWidth = attributes.mTextSize;
+        mLength = attributes.mLength;
+        mRectRadius = attributes.mRectRadius;
+        ghostEffect = attributes.mGhostEffect;
+        mAnimMode = attributes.mAnimMode;
+        mClockMode = attributes.mClockMode;
+        mInterpolate = attributes.mInterpolate;
+        boolean frameTable = attributes.mFrameTable;
+        boolean spriteAtlas = attributes.mSpriteAtlas;
+        boolean batchDraw = attributes.mBatchDraw;
+        boolean baked = attributes.mBaked;
+        mContinuous = attributes.mContinuous;
+        int waveShape = attributes.mWaveShape;
+        mAutoFit = attributes.mAutoFit;
+        boolean adaptiveQuality = attributes.mAdaptiveQuality;
+
+        mStepNanos = Math.max(mDuration,1) * 1000000L;
+        mWaveOffset = WaveStyles.waveOffsetOf(mWaveHeight);
 
         int type = mType;
 
         if(mText != null && (mText.length() - mWaveLength) >= 2){
             mLength = mText.length();
-            mTextHeight = textWidthToHtight(mTextWidth);
+            mTextHeight = WaveStyles.textWidthToHtight(mTextWidth);
             type = IMAGE_TYPE_TEXT;
         }
 
@@ -249,58 +392,65 @@ public class WaveLoadingView extends View {
             type = IMAGE_TYPE_DRAWABLE;
         }
 
-        if(mRectRadius * 2 > mImageSize){
-            mRectRadius = mImageSize / 2 - 1;
-        }
+        mRectRadius = WaveStyles.clampRectRadius(mRectRadius,mImageSize);
+        mGhostAlphaMin = WaveStyles.ghostAlphaMinOf(attributes.mGhostAlphaMin,attributes.mGhostAlphaMax);
+        mGhostAlphaMax = WaveStyles.ghostAlphaMaxOf(attributes.mGhostAlphaMin,attributes.mGhostAlphaMax);
 
-        int elementsTotal = mLength + (mWaveLength - 1) * 2;
-        mElements = new Element[elementsTotal];
-        for(int i = 0;i < elementsTotal;i++){
-            mElements[i] = new Element();
-        }
-        mDisplayStart = mWaveLength - 1;
-        mDisplayEnd = mDisplayStart + mLength;
-        mWaveStart = 0;
+        mEngine = new WaveLayoutEngine(mLength,mWaveLength);
+        mEngine.setGhostAlpha(mGhostAlphaMin,mGhostAlphaMax);
+        mEngine.setFrameTableEnabled(frameTable);
+        mEngine.setWaveShape(WaveStyles.waveShape(waveShape));
 
-        mWaveAlpha= new int[mWaveLength];
+        mType = type;
 
-        if(mGhostAlphaMax > GHOST_ALPHA_MAX_DEFAULT){
-            mGhostAlphaMax = GHOST_ALPHA_MAX_DEFAULT;
-        }
+        mPaint = new Paint();
+        mPaint.setAntiAlias(true);
 
-        if(mGhostAlphaMin < 10){
-            mGhostAlphaMin = 10;
+        mRenderer = new WaveRenderer();
+        mWaveCanvas = new CanvasWaveCanvas(mPaint);
+        if(spriteAtlas){
+            mSpriteAtlas = new SpriteAtlas(mWaveCanvas,new CanvasWaveCanvas(mPaint));
         }
-
-        if(mGhostAlphaMax < mGhostAlphaMin){
-            mGhostAlphaMax = GHOST_ALPHA_MAX_DEFAULT;
-            mGhostAlphaMin = GHOST_ALPHA_MIN_DEFAULT;
+        if(batchDraw){
+            mBatchCanvas = new AlphaBatchCanvas(mWaveCanvas,mWaveCanvas);
+        }
+        if(baked){
+            mBakedSheet = new BakedSheet();
         }
 
-        int halfLen = mWaveLength % 2 == 0 ? mWaveLength / 2 + 1 : mWaveLength / 2;
-        int alphaInterval = (mGhostAlphaMax - mGhostAlphaMin) / (halfLen + 1);
+        mVisibilityListener = new VisibilityListener();
 
-        for(int i = 0;i <= halfLen;i++) {
-            mWaveAlpha[i] = mWaveAlpha[mWaveLength - i - 1] = mGhostAlphaMin + (i + 1) * alphaInterval;
+        if(adaptiveQuality){
+            setAdaptiveQualityEnabled(true);
         }
+    }
 
-        mType = type;
-
-        mPaint = new Paint();
-        mPaint.setAntiAlias(true);
+    /**
+     * 包裹内容时的宽度，不包括内边距
+     */
+    private int contentWidth(){
+        int elementWidth = mType == IMAGE_TYPE_TEXT ? mTextWidth : mImageSize;
+        return WaveLayoutEngine.measureWidth(mLength,elementWidth,mInterval);
+    }
 
-        ViewTreeObserver observer = getViewTreeObserver();
-        observer.addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
-            @Override
-            public void onGlobalLayout() {
-                getViewTreeObserver().removeOnGlobalLayoutListener(this);
-                start();
-            }
-        });
+    /**
+     * 包裹内容时的高度，不包括内边距
+     */
+    private int contentHeight(){
+        int elementHeight = mType == IMAGE_TYPE_TEXT ? mTextHeight : mImageSize;
+        return WaveLayoutEngine.measureHeight(mWaveLength,elementHeight,mWaveOffset);
     }
 
-    private int textWidthToHtight(int width){
-        return (int) ((width +  0.00000007) / 0.7535);
+    /**
+     * 内容尺寸变化时才重新布局，否则只需重绘
+     * @param oldWidth 变化前的内容宽度
+     * @param oldHeight 变化前的内容高度
+     */
+    private void relayoutIfResized(int oldWidth,int oldHeight){
+        if(contentWidth() != oldWidth || contentHeight() != oldHeight){
+            requestLayout();
+        }
+        invalidate();
     }
 
     @Override
@@ -340,15 +490,15 @@ public class WaveLoadingView extends View {
         int paddingTop = getPaddingTop();
         int paddingBottom = getPaddingBottom();
 
-        int wrapWidth = mLength * elementWidth +
-                (mLength - 1) * mInterval +
-                paddingLeft + paddingRight;
+        if(mAutoFit && widthMode == MeasureSpec.EXACTLY && mType != IMAGE_TYPE_TEXT){
+            fitLength(WaveLayoutEngine.fitLength(width - paddingLeft - paddingRight,elementWidth,mInterval));
+        }
 
-        int waveHeight = (mWaveLength % 2) != 0 ?
-                (int) (elemwntHeight + (mWaveLength / 2 + 1) * elemwntHeight * mWaveOffset) :
-                (int) (elemwntHeight + mWaveLength / 2 * elemwntHeight * mWaveOffset);
+        int wrapWidth = WaveLayoutEngine.measureWidth(mLength,elementWidth,mInterval) +
+                paddingLeft + paddingRight;
 
-        int wrapHeight = waveHeight + paddingTop + paddingBottom;
+        int wrapHeight = WaveLayoutEngine.measureHeight(mWaveLength,elemwntHeight,mWaveOffset) +
+                paddingTop + paddingBottom;
 
         if(widthMode == MeasureSpec.AT_MOST && heightMode == MeasureSpec.AT_MOST){
             width = wrapWidth;
@@ -362,348 +512,374 @@ public class WaveLoadingView extends View {
         setMeasuredDimension(MeasureSpec.makeMeasureSpec(width,widthMode),MeasureSpec.makeMeasureSpec(height,heightMode));
     }
 
-    private int dp2px(int dp){
-        return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_PX,dp,getResources().getDisplayMetrics());
-    }
-
-    private int sp2px(int sp){
-        return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_PX,sp,getResources().getDisplayMetrics());
-    }
-
-    @Override
-    protected void onDraw(Canvas canvas) {
-        prepareElementsX();
-        prepareElementsY();
-
-        if(mCustomWaveDrawer != null){
-            onDrawCustomWave(canvas);
+    /**
+     * 按测量出的宽度调整元素个数，只在个数变化时重新分配元素
+     */
+    private void fitLength(int length){
+        length = Math.max(length,mWaveLength + 2);
+        if(length == mLength){
             return;
         }
 
-        switch(mType){
-            case IMAGE_TYPE_TEXT:
-                onDrawText(canvas);
-                break;
-
-            case IMAGE_TYPE_CIRCLE:
-                onDrawCirclesWave(canvas);
-                break;
-
-            case IMAGE_TYPE_SQUARE:
-                onDrawSquareWave(canvas);
-                break;
-
-            case IMAGE_TYPE_RECT:
-                onDrawRectWave(canvas);
-                break;
-
-            case IMAGE_TYPE_NOISE:
-                onDrawNoiseWave(canvas);
-                break;
+        mLength = length;
+        mEngine.setup(mLength,mWaveLength);
+        mPhase = 0;
+    }
 
-            case IMAGE_TYPE_DRAWABLE:
-                onDrawDrawable(canvas);
-                break;
-        }
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        buildFrameTable();
     }
 
     /**
-     * 准备好各元素的y坐标，对于奇数个和偶数个的元素要分开分别处理
+     * 启用帧表时提前生成各相位的y坐标和透明度，之后每帧只需查表
      */
-    protected void prepareElementsY(){
-        int waveEleCount = 1;
-        int waveHighestPos;
-        int waveEndPos = (mWaveStart + mWaveLength - 1) % mElements.length;
-
-        boolean isOdd = mWaveLength % 2 != 0;
-
-        int elementHeight = 0;
-
-        float elementHeightOffset;
-
-        switch(mType){
-            case IMAGE_TYPE_TEXT:
-                elementHeight = mTextHeight;
-                break;
+    private void buildFrameTable(){
+        int elementHeight = mType == IMAGE_TYPE_TEXT ? mTextHeight : mImageSize;
+        mEngine.buildFrameTable(getHeight() - getPaddingBottom(),elementHeight,mWaveOffset);
+    }
 
-            case IMAGE_TYPE_CIRCLE:
-            case IMAGE_TYPE_SQUARE:
-            case IMAGE_TYPE_RECT:
-            case IMAGE_TYPE_NOISE:
-                elementHeight = mImageSize;
-                break;
+    @Override
+    protected void onDraw(Canvas canvas) {
+        //之后写入的振幅或进度需要重新请求重绘
+        mInvalidatePending.set(false);
 
-            case IMAGE_TYPE_DRAWABLE:
-                elementHeight = mImageSize;
-                break;
+        if(!canvas.getClipBounds(mClipRect)){
+            return;
         }
 
-        elementHeightOffset = elementHeight * mWaveOffset;
-
-        int waveBottom = getHeight() - getPaddingBottom();
-
-        waveHighestPos = (mWaveStart + mWaveLength / 2) % mElements.length;
-
-        if(isOdd){
-            //case1
-            if(waveHighestPos >= mDisplayStart && waveHighestPos <= mDisplayEnd){
-                //set wave
-                for(int i = mWaveStart;i <= waveEndPos;i++){
-                    //wave up
-                    if(i < waveHighestPos){
-                        mElements[i].y = (int) (waveBottom - elementHeight - waveEleCount * elementHeightOffset);
-                        mElements[i].alpha = mWaveAlpha[waveEleCount - 1];
-                        waveEleCount++;
-                    }else if(i > waveHighestPos){ //wave down
-                        waveEleCount--;
-                        mElements[i].y = (int) (waveBottom - elementHeight - waveEleCount * elementHeightOffset);
-                        mElements[i].alpha =  mWaveAlpha[waveEleCount - 1];
-                    }else{
-                        mElements[i].y = (int) (waveBottom - elementHeight - waveEleCount * elementHeightOffset);
-                        mElements[i].alpha = mGhostAlphaMax;
-                    }
-                }
-
-                //set even
-                for(int i = mDisplayStart;i < mWaveStart;i++){
-                    mElements[i].y = waveBottom - elementHeight;
-                    mElements[i].alpha = mGhostAlphaMin;
-                }
-
-                for(int i = waveEndPos + 1;i <= mDisplayEnd;i++){
-                    mElements[i].y = waveBottom - elementHeight;
-                    mElements[i].alpha = mGhostAlphaMin;
-                }
-                return;
+        Trace.beginSection("WaveLoadingView#onDraw");
+        try{
+            WaveFrameStats stats = mFrameStats;
+            QualityGovernor governor = mQualityGovernor;
+            boolean timed = stats != null || governor != null;
+            long start = timed ? System.nanoTime() : 0;
+
+            prepareElementsX();
+            prepareElementsY();
+            long laidOut = stats != null ? System.nanoTime() : 0;
+
+            if(!drawBaked(canvas)){
+                prepareRenderer(canvas);
+                drawWave(canvas);
             }
+            long end = timed ? System.nanoTime() : 0;
 
-            //case2
-            if(waveHighestPos < mDisplayStart){
-                //set wave
-                for(int i = waveEndPos;i >= mDisplayStart;i--){
-                    mElements[i].y = (int) (waveBottom - elementHeight - waveEleCount * elementHeightOffset);
-                    mElements[i].alpha =  mWaveAlpha[waveEleCount - 1];
-                    waveEleCount++;
-                }
-
-                //set even
-                for(int i = waveEndPos + 1;i <= mDisplayEnd;i++){
-                    mElements[i].y = waveBottom - elementHeight;
-                    mElements[i].alpha = mGhostAlphaMin;
+            if(stats != null){
+                stats.recordLayout(laidOut - start);
+                stats.recordDraw(mCustomWaveDrawer != null ? WaveFrameStats.STYLE_CUSTOM : mType,end - laidOut);
+                if(mOnFrameStatsListener != null){
+                    mOnFrameStatsListener.onFrameStats(stats);
                 }
-                return;
             }
 
-            //case3
-            if(waveHighestPos > mDisplayEnd){
-                //set even
-                for(int i = mDisplayStart;i < mWaveStart;i++){
-                    mElements[i].y = waveBottom - elementHeight;
-                    mElements[i].alpha = mGhostAlphaMin;
-                }
-
-                //set wave
-                for(int i = mWaveStart;i < mDisplayEnd;i++){
-                    mElements[i].y = (int) (waveBottom - elementHeight - waveEleCount * elementHeightOffset);
-                    mElements[i].alpha =  mWaveAlpha[waveEleCount - 1];
-                    waveEleCount++;
-                }
-                return;
+            //烘焙整个周期的那一帧不代表平时的耗时，不计入
+            if(governor != null && !mFrameBaked && governor.recordFrame(end - start)){
+                applyQuality(governor.getQuality());
             }
+            mFrameBaked = false;
+        }finally {
+            Trace.endSection();
         }
+    }
 
-        waveHighestPos--;
-        //is not odd
-        //case1
-        if(waveHighestPos > mDisplayStart && waveHighestPos <= mDisplayEnd){
-            //set wave
-            for(int i = mWaveStart;i <= waveEndPos;i++){
-                //wave up
-                if(i < waveHighestPos){
-                    mElements[i].y = (int) (waveBottom - elementHeight - waveEleCount * elementHeightOffset);
-                    mElements[i].alpha =  mWaveAlpha[waveEleCount - 1];
-                    waveEleCount++;
-                }else if(i > waveHighestPos){ //wave down
-                    mElements[i].y = (int) (waveBottom - elementHeight - waveEleCount * elementHeightOffset);
-                    mElements[i].alpha =  mWaveAlpha[waveEleCount - 1];
-                    waveEleCount--;
-                }else{
-                    mElements[i].y = (int) (waveBottom - elementHeight - waveEleCount * elementHeightOffset);
-                    mElements[i].alpha = mGhostAlphaMax;
-                }
-            }
+    /**
+     * 烘焙模式下从帧图表中贴图，图表过期时先烘焙整个周期
+     * 插值、连续模式和由振幅驱动的噪声波的帧不在周期内，以及图表超过内存上限时，返回false改为直接绘制
+     * @param canvas
+     * @return 是否已经贴图
+     */
+    private boolean drawBaked(Canvas canvas){
+        if(mBakedSheet == null
+                || mFraction != 0
+                || (mContinuous && (mProgress >= 0 || isContinuousActive()))
+                || (mAmplitudeInput && mType == IMAGE_TYPE_NOISE && mCustomWaveDrawer == null)){
+            return false;
+        }
 
-            //set even
-            for(int i = mDisplayStart;i < mWaveStart;i++){
-                mElements[i].y = waveBottom - elementHeight;
-                mElements[i].alpha = mGhostAlphaMin;
-            }
+        int frames = mEngine.getElementsTotal();
+        int width = contentWidth();
+        int height = contentHeight();
+        int left = getPaddingLeft();
+        int top = getHeight() - getPaddingBottom() - height;
+        if(mBakedSheet.needsBake(frames,width,height)){
+            mFrameBaked = true;
+            bakeSheet(frames,left,top,width,height);
+            canvas.getClipBounds(mClipRect);
+        }
+        return mBakedSheet.draw(canvas,mEngine.getWaveStart(),left,top);
+    }
 
-            for(int i = waveEndPos + 1;i <= mDisplayEnd;i++){
-                mElements[i].y = waveBottom - elementHeight;
-                mElements[i].alpha = mGhostAlphaMin;
-            }
+    /**
+     * 准备帧图表，依次尝试共享的位图缓存、磁盘缓存，都未命中时才烘焙
+     * 烘焙好的图表放入共享缓存，配置相同的控件不再重复烘焙，也不重复占用内存
+     */
+    private void bakeSheet(int frames,int left,int top,int width,int height){
+        long key = sheetKey(frames,width,height);
+        WaveBitmapCache bitmapCache = key != 0 ? WaveBitmapCache.getInstance(getContext()) : null;
+        if(bitmapCache != null && mBakedSheet.attach(bitmapCache,key,frames,width,height)){
             return;
         }
 
-        //case2
-        if(waveHighestPos <= mDisplayStart){
-            //set wave
-            for(int i = waveEndPos;i > waveHighestPos;i--){
-                mElements[i].y = (int) (waveBottom - elementHeight - waveEleCount * elementHeightOffset);
-                mElements[i].alpha =  mWaveAlpha[waveEleCount - 1];
-                waveEleCount++;
-            }
-
-            //set even
-            for(int i = waveEndPos + 1;i <= mDisplayEnd;i++){
-                mElements[i].y = waveBottom - elementHeight;
-                mElements[i].alpha = mGhostAlphaMin;
-            }
+        if(!mBakedSheet.allocate(frames,width,height)){
             return;
         }
 
-        //case3
-        if(waveHighestPos > mDisplayEnd){
-            //set even
-            for(int i = mDisplayStart;i < mWaveStart;i++){
-                mElements[i].y = waveBottom - elementHeight;
-                mElements[i].alpha = mGhostAlphaMin;
-            }
+        WaveDiskCache diskCache = key != 0 ? sDiskCache : null;
+        boolean loaded = diskCache != null && mBakedSheet.readPixels(diskCache.load(key,mBakedSheet.getByteCount()));
+        if(!loaded){
+            renderSheet(frames,left,top,width,height);
+        }
+        mBakedSheet.finish();
+
+        if(bitmapCache != null){
+            mBakedSheet.share(bitmapCache,key);
+        }
 
-            //set wave
-            for(int i = mWaveStart;i <= mDisplayEnd;i++){
-                mElements[i].y = (int) (waveBottom - elementHeight - waveEleCount * elementHeightOffset);
-                mElements[i].alpha =  mWaveAlpha[waveEleCount - 1];
-                waveEleCount++;
+        //共享后的图表不再修改，像素在写入线程上复制
+        WaveDiskCache.PixelSource pixels = !loaded && diskCache != null ? mBakedSheet.pixelSource() : null;
+        if(pixels != null){
+            diskCache.store(key,pixels);
+        }
+    }
+
+    /**
+     * 把波的每个位置绘制到帧图表中，绘制方式与直接绘制相同，所以任意风格和绘制器都可以烘焙
+     * 噪声波的每一帧只随机一次，之后每个周期重复
+     */
+    private void renderSheet(int frames,int left,int top,int width,int height){
+        Trace.beginSection("WaveLoadingView#bake");
+        try{
+            int elementHeight = mType == IMAGE_TYPE_TEXT ? mTextHeight : mImageSize;
+            int waveBottom = top + height;
+            int waveStart = mEngine.getWaveStart();
+            mClipRect.set(left,top,left + width,waveBottom);
+            for(int i = 0;i < frames;i++){
+                mEngine.setWaveStart(i);
+                mEngine.prepareElementsY(waveBottom,elementHeight,mWaveOffset);
+                Canvas frameCanvas = mBakedSheet.beginFrame(i,left,top);
+                prepareRenderer(frameCanvas);
+                drawWave(frameCanvas);
+                mBakedSheet.endFrame();
             }
+            mEngine.setWaveStart(waveStart);
+            mEngine.prepareElementsY(waveBottom,elementHeight,mWaveOffset);
+        }finally {
+            Trace.endSection();
         }
     }
 
     /**
-     * 准备好各元素的x坐标
+     * 帧图表在共享缓存和磁盘缓存中的键，由决定帧内容的所有参数计算
+     * 自定义图片、绘制器和波形的内容无法稳定地计算哈希，返回0表示不缓存
      */
-    protected void prepareElementsX(){
-        int drawLeftStart = getPaddingLeft();
+    private long sheetKey(int frames,int width,int height){
+        int shape = WaveStyles.waveShapeValue(mEngine.getWaveShape());
+        if(mCustomWaveDrawer != null || mType == IMAGE_TYPE_DRAWABLE || shape < 0){
+            return 0;
+        }
 
-        int elementWidth = 0;
+        return mRenderKey.reset()
+                .put(mType)
+                .put(mType == IMAGE_TYPE_TEXT ? mText : null)
+                .put(mTextWidth)
+                .put(mImageSize)
+                .put(mInterval)
+                .put(mRectRadius)
+                .put(mColor)
+                .put(mPaint.isAntiAlias())
+                .put(mWaveLength)
+                .put(mLength)
+                .put(mWaveOffset)
+                .put(shape)
+                .put(ghostEffect)
+                .put(mQuality)
+                .put(mGhostAlphaMin)
+                .put(mGhostAlphaMax)
+                .put(getResources().getDisplayMetrics().densityDpi)
+                .put(frames)
+                .put(width)
+                .put(height)
+                .get();
+    }
+
+    /**
+     * 按风格绘制波
+     * @param canvas
+     */
+    private void drawWave(Canvas canvas){
+        if(mCustomWaveDrawer != null){
+            Trace.beginSection("WaveLoadingView#customDrawer");
+            try{
+                onDrawCustomWave(canvas);
+            }finally {
+                Trace.endSection();
+            }
+            flushBatch();
+            return;
+        }
 
         switch(mType){
             case IMAGE_TYPE_TEXT:
-                elementWidth = mTextWidth;
+                onDrawText(canvas);
                 break;
 
             case IMAGE_TYPE_CIRCLE:
+                onDrawCirclesWave(canvas);
+                break;
+
             case IMAGE_TYPE_SQUARE:
+                onDrawSquareWave(canvas);
+                break;
+
             case IMAGE_TYPE_RECT:
+                onDrawRectWave(canvas);
+                break;
+
             case IMAGE_TYPE_NOISE:
-                elementWidth = mImageSize;
+                onDrawNoiseWave(canvas);
                 break;
 
             case IMAGE_TYPE_DRAWABLE:
-                elementWidth = mImageSize;
+                onDrawDrawable(canvas);
                 break;
         }
-
-        for(int i = 0;i < mLength;i++){
-            int x = drawLeftStart + (elementWidth + mInterval) * i;
-            mElements[mDisplayStart + i].x = x;
-        }
+        flushBatch();
     }
 
     /**
-     * 绘制文本风格的波
-     * @param canvas
+     * 批量绘制时，元素在绘制方法中只是被收集起来，这里才真正绘制到画布上
      */
-    protected void onDrawText(Canvas canvas){
-        mPaint.setColor(mColor);
-        mPaint.setTextSize(mTextWidth);
-        Paint.FontMetrics fontMetrics = mPaint.getFontMetrics();
-
-        for(int i = 0;i < mLength;i++){
-            if(ghostEffect){
-                mPaint.setAlpha(mElements[mDisplayStart + i].alpha);
-            }
-
-            canvas.drawText(mText.substring(i,i+1),
-                    mElements[mDisplayStart + i].x,
-                    mElements[mDisplayStart + i].y + mTextHeight - fontMetrics.bottom,
-                    mPaint);
+    private void flushBatch(){
+        if(mBatchCanvas != null && mDrawCanvas == mBatchCanvas){
+            mBatchCanvas.flush();
         }
     }
 
     /**
-     * 绘制圆点风格的波
+     * 把当前的绘制参数同步给渲染器
      * @param canvas
      */
-    protected void onDrawCirclesWave(Canvas canvas){
-        mPaint.setColor(mColor);
-        for(int i = 0;i < mLength;i++){
-            if(ghostEffect){
-                mPaint.setAlpha(mElements[mDisplayStart + i].alpha);
-            }
-
-            canvas.drawCircle(mElements[mDisplayStart + i].x + mImageSize / 2,
-                    mElements[mDisplayStart + i].y + mImageSize / 2,
-                    mImageSize / 2,
-                    mPaint);
+    private void prepareRenderer(Canvas canvas){
+        mRenderer.setImageSize(mImageSize);
+        mRenderer.setRectRadius(mRectRadius);
+        mRenderer.setWaveBottom(getHeight() - getPaddingBottom());
+        mRenderer.setGhostEffect(ghostEffect && mQuality < QualityGovernor.QUALITY_LOW);
+        mRenderer.setTextHeight(mTextHeight);
+        mRenderer.setClip(mClipRect.left,mClipRect.top,mClipRect.right,mClipRect.bottom);
+
+        mWaveCanvas.setCanvas(canvas);
+        mWaveCanvas.setText(mText);
+        mWaveCanvas.setDrawable(mCustomWaveDrawable);
+        mWaveCanvas.setWaveDrawer(mCustomWaveDrawer,mImageSize);
+        mDrawCanvas = mWaveCanvas;
+
+        //文本的字符各不相同，噪声的高度每帧随机，插值中的元素高度也几乎不会重复，这几种情况直接绘制
+        boolean useAtlas = mSpriteAtlas != null
+                && mFraction == 0
+                && !isContinuousActive()
+                && (mCustomWaveDrawer != null || (mType != IMAGE_TYPE_TEXT && mType != IMAGE_TYPE_NOISE));
+        if(useAtlas){
+            mSpriteAtlas.setTarget(canvas);
+            mSpriteAtlas.setMaxElementSize(mImageSize,getHeight() - getPaddingBottom());
+            mSpriteAtlas.setRasterParams(mCustomWaveDrawable,mCustomWaveDrawer,mImageSize);
+            mDrawCanvas = mSpriteAtlas;
+        }else if(mBatchCanvas != null){
+            mDrawCanvas = mBatchCanvas;
         }
     }
 
     /**
-     * 绘制正方形风格的波
-     * @param canvas
+     * 准备好各元素的y坐标，具体计算交给{@link WaveLayoutEngine}
      */
-    protected void onDrawSquareWave(Canvas canvas){
-        mPaint.setColor(mColor);
-        for(int i = 0;i < mLength;i++){
-            if(ghostEffect){
-                mPaint.setAlpha(mElements[mDisplayStart + i].alpha);
-            }
-
-            if(mRectRadius > 0){
-                canvas.drawRoundRect(mElements[mDisplayStart + i].x,
-                        mElements[mDisplayStart + i].y,
-                        mElements[mDisplayStart + i].x + mImageSize,
-                        mElements[mDisplayStart + i].y + mImageSize,
-                        10,10,
-                        mPaint);
+    protected void prepareElementsY(){
+        int elementHeight = mType == IMAGE_TYPE_TEXT ? mTextHeight : mImageSize;
+        int waveBottom = getHeight() - getPaddingBottom();
+        float progress = mProgress;
+        if(progress >= 0){
+            //进度模式下波峰停在进度对应的元素上，开启连续模式时可以停在两个元素之间
+            //退出进度模式后波从这里继续移动
+            float crest = progress * (mLength - 1);
+            if(mContinuous){
+                mPhase = mEngine.getPhaseForCrest(crest);
+                mEngine.prepareElementsContinuous(mPhase,waveBottom,elementHeight,mWaveOffset);
             }else{
-                canvas.drawRect(mElements[mDisplayStart + i].x,
-                        mElements[mDisplayStart + i].y,
-                        mElements[mDisplayStart + i].x + mImageSize,
-                        mElements[mDisplayStart + i].y + mImageSize,
-                        mPaint);
+                mEngine.setCrest(Math.round(crest));
+                mPhase = mEngine.getWaveStart();
+                mEngine.prepareElementsY(waveBottom,elementHeight,mWaveOffset);
             }
+            return;
         }
+
+        if(isContinuousActive()){
+            mEngine.prepareElementsContinuous(mPhase,waveBottom,elementHeight,mWaveOffset);
+            return;
+        }
+        mEngine.prepareElementsY(waveBottom,elementHeight,mWaveOffset);
+        mEngine.interpolate(mFraction,waveBottom,elementHeight,mWaveOffset);
     }
 
     /**
-     * 绘制长方形风格的波
+     * 连续模式只在{@link WaveLoadingView#ANIM_MODE_VSYNC}且没有设置波控制器时生效，画质降档后改为逐步移动
+     */
+    private boolean isContinuousActive(){
+        return mContinuous && mAnimMode == ANIM_MODE_VSYNC && mWaveControler == null
+                && mQuality < QualityGovernor.QUALITY_MEDIUM;
+    }
+
+    /**
+     * 每次刷新移动的步数，最低档位下刷新频率减半，每次移动两步，波的速度不变
+     */
+    private int tickSteps(){
+        return mQuality >= QualityGovernor.QUALITY_MINIMAL ? 2 : 1;
+    }
+
+    /**
+     * 准备好各元素的x坐标，具体计算交给{@link WaveLayoutEngine}
+     */
+    protected void prepareElementsX(){
+        int elementWidth = mType == IMAGE_TYPE_TEXT ? mTextWidth : mImageSize;
+        mEngine.prepareElementsX(getPaddingLeft(),elementWidth,mInterval);
+    }
+
+    /**
+     * 绘制文本风格的波
      * @param canvas
      */
-    protected void onDrawRectWave(Canvas canvas){
+    protected void onDrawText(Canvas canvas){
         mPaint.setColor(mColor);
-        for(int i = 0;i < mLength;i++){
-            if(ghostEffect){
-                mPaint.setAlpha(mElements[mDisplayStart + i].alpha);
-            }
+        mPaint.setTextSize(mTextWidth);
+        mPaint.getFontMetrics(mFontMetrics);
+        mRenderer.setTextBaseline(mTextHeight - mFontMetrics.bottom);
+        mRenderer.drawText(mEngine,mDrawCanvas);
+    }
 
-            if(mRectRadius > 0){
-                canvas.drawRoundRect(mElements[mDisplayStart + i].x,
-                        mElements[mDisplayStart + i].y,
-                        mElements[mDisplayStart + i].x + mImageSize,
-                        getHeight() - getPaddingBottom(),
-                        mRectRadius,mRectRadius,
-                        mPaint);
-            }else{
-                canvas.drawRect(mElements[mDisplayStart + i].x,
-                        mElements[mDisplayStart + i].y,
-                        mElements[mDisplayStart + i].x + mImageSize,
-                        getHeight() - getPaddingBottom(),
-                        mPaint);
-            }
-        }
+    /**
+     * 绘制圆点风格的波
+     * @param canvas
+     */
+    protected void onDrawCirclesWave(Canvas canvas){
+        mPaint.setColor(mColor);
+        mRenderer.drawCircles(mEngine,mDrawCanvas);
+    }
+
+    /**
+     * 绘制正方形风格的波
+     * @param canvas
+     */
+    protected void onDrawSquareWave(Canvas canvas){
+        mPaint.setColor(mColor);
+        mRenderer.drawSquares(mEngine,mDrawCanvas);
+    }
+
+    /**
+     * 绘制长方形风格的波
+     * @param canvas
+     */
+    protected void onDrawRectWave(Canvas canvas){
+        mPaint.setColor(mColor);
+        mRenderer.drawRects(mEngine,mDrawCanvas);
     }
 
     /**
@@ -711,27 +887,18 @@ public class WaveLoadingView extends View {
      * @param canvas
      */
     protected void onDrawNoiseWave(Canvas canvas){
-        int nosieWidth = mImageSize / 8;
-        int left;
-        int bottom = getHeight() - getPaddingBottom();
-        int height;
         mPaint.setColor(mColor);
-        for(int i = 0;i < mLength;i++) {
-            if(ghostEffect){
-                mPaint.setAlpha(mElements[mDisplayStart + i].alpha);
-            }
-
-            for(int j = 0;j < 4;j++){
-                height = (int) (mElements[mDisplayStart + i].y * 0.25
-                    + mElements[mDisplayStart + i].y * 0.75 * Math.random());
-                left = mElements[mDisplayStart + i].x + nosieWidth * 2 * j;
-                canvas.drawRect(left,
-                        height,
-                        left + nosieWidth,
-                        bottom,
-                        mPaint);
+        if(mAmplitudeInput){
+            int bars = mLength * mRenderer.getNoiseBars();
+            if(mAmplitudes == null || mAmplitudes.length != bars){
+                mAmplitudes = new float[bars];
             }
+            mAmplitudeBuffer.drainTo(mAmplitudes);
+            mRenderer.setAmplitudes(mAmplitudes);
+        }else{
+            mRenderer.setAmplitudes(null);
         }
+        mRenderer.drawNoise(mEngine,mDrawCanvas);
     }
 
     /**
@@ -740,17 +907,7 @@ public class WaveLoadingView extends View {
      */
     protected void onDrawCustomWave(Canvas canvas){
         mPaint.setColor(mColor);
-        for(int i = 0;i < mLength;i++){
-            if(ghostEffect){
-                mPaint.setAlpha(mElements[mDisplayStart + i].alpha);
-            }
-
-            mCustomWaveRect.bottom = getHeight() - getPaddingBottom();
-            mCustomWaveRect.top = mElements[mDisplayStart + i].y;
-            mCustomWaveRect.left = mElements[mDisplayStart + i].x;
-            mCustomWaveRect.right = mElements[mDisplayStart + i].x + mImageSize;
-            mCustomWaveDrawer.onDrawWave(canvas,mPaint,mCustomWaveRect,mImageSize);
-        }
+        mRenderer.drawCustom(mEngine,mDrawCanvas);
     }
 
     /**
@@ -758,72 +915,365 @@ public class WaveLoadingView extends View {
      * @param canvas
      */
     protected void onDrawDrawable(Canvas canvas){
-        for(int i = 0;i < mLength;i++){
-            if(ghostEffect){
-                mCustomWaveDrawable.setAlpha(mElements[mDisplayStart + i].alpha);
-            }
+        mRenderer.drawImages(mEngine,mDrawCanvas);
+    }
 
-            mCustomWaveDrawable.setBounds(mElements[mDisplayStart + i].x,
-                    mElements[mDisplayStart + i].y,
-                    mElements[mDisplayStart + i].x + mImageSize,
-                    mElements[mDisplayStart + i].y + mImageSize);
+    /**
+     * 刷新一帧
+     */
+    protected void refreshFrame(){
+        Trace.beginSection("WaveLoadingView#refreshFrame");
+        try{
+            if(mClockMode != CLOCK_MODE_DELAY){
+                refreshOnClock();
+                return;
+            }
 
-            mCustomWaveDrawable.draw(canvas);
+            int tickSteps = tickSteps();
+            if(mFrameStats != null){
+                mFrameStats.recordTick(System.nanoTime(),mDuration * 1000000L * tickSteps,1);
+            }
+            if(mProgress < 0){
+                for(int i = 0;i < tickSteps;i++){
+                    waveMove();
+                }
+            }
+            if(running){
+                mAnimHandler.sendEmptyMessageDelayed(ANIM_MESSAGE,mDuration * tickSteps);
+            }
+        }finally {
+            Trace.endSection();
         }
     }
 
     /**
-     * 刷新一帧
+     * 按时钟刷新，迟到时一次移动多步，下一次刷新的时间与起点对齐，处理的延迟不会累积
      */
-    protected void refreshFrame(){
-        waveMove();
+    private void refreshOnClock(){
+        long now = SystemClock.uptimeMillis();
+        long period = Math.max(mDuration,1);
+        if(period != mClockPeriod){
+            //速度变化后从当前位置按新的间隔重新计时
+            startClock(now);
+        }
+
+        long step = WaveClock.stepIndex(now,mClockOrigin,period);
+        long steps = step - mClockStep;
+        mClockStep = step;
+        if(steps > 0){
+            if(mFrameStats != null){
+                mFrameStats.recordTick(System.nanoTime(),period * 1000000L,steps);
+            }
+            if(mProgress < 0){
+                int oldWaveStart = mEngine.getWaveStart();
+                if(mClockMode == CLOCK_MODE_SHARED && mWaveControler == null){
+                    mEngine.setWaveStart(WaveClock.waveStartAt(now,mClockOrigin,period,mEngine.getElementsTotal()));
+                }else{
+                    int elementsTotal = mEngine.getElementsTotal();
+                    long count = mWaveControler == null ? steps % elementsTotal : Math.min(steps,elementsTotal);
+                    for(int i = 0;i < count;i++){
+                        stepWave();
+                    }
+                }
+                invalidateWave(oldWaveStart);
+            }
+        }
+
         if(running){
-            mAnimHandler.sendEmptyMessageDelayed(ANIM_MESSAGE,mDuration);
+            mAnimHandler.sendEmptyMessageAtTime(ANIM_MESSAGE,WaveClock.nextStepTime(now,mClockOrigin,period * tickSteps()));
+        }
+    }
+
+    /**
+     * 开始按时钟计时，共享时钟以零点为起点，并把波直接放到时钟对应的位置
+     * @param now 当前时间，单位为毫秒
+     */
+    private void startClock(long now){
+        mClockPeriod = Math.max(mDuration,1);
+        mClockOrigin = mClockMode == CLOCK_MODE_SHARED ? 0 : now;
+        mClockStep = WaveClock.stepIndex(now,mClockOrigin,mClockPeriod);
+        if(mClockMode == CLOCK_MODE_SHARED && mWaveControler == null && mProgress < 0){
+            int oldWaveStart = mEngine.getWaveStart();
+            mEngine.setWaveStart(WaveClock.waveStartAt(now,mClockOrigin,mClockPeriod,mEngine.getElementsTotal()));
+            invalidateWave(oldWaveStart);
+        }
+    }
+
+    /**
+     * 共享时钟下，垂直同步模式开始计时时对齐到时钟的整数步，并把波直接放到时钟对应的位置
+     * 之后每次都按整数步推进，所以速度和元素个数相同的控件每帧的位置和插值进度都相同
+     * @param frameTimeNanos 这一帧的时间
+     */
+    private void alignToSharedClock(long frameTimeNanos){
+        mLastStepNanos = WaveClock.stepIndex(frameTimeNanos,0,mStepNanos) * mStepNanos;
+        if(!isContinuousActive() && mWaveControler == null){
+            int oldWaveStart = mEngine.getWaveStart();
+            mEngine.setWaveStart(WaveClock.waveStartAt(frameTimeNanos,0,mStepNanos,mEngine.getElementsTotal()));
+            invalidateWave(oldWaveStart);
+        }
+    }
+
+    /**
+     * 共享时钟下连续模式的相位，直接由时钟算出，不随帧累加误差
+     * @param frameTimeNanos 这一帧的时间
+     */
+    private float sharedPhase(long frameTimeNanos){
+        long cycle = mStepNanos * mEngine.getElementsTotal();
+        long offset = frameTimeNanos % cycle;
+        if(offset < 0){
+            offset += cycle;
         }
+        return (float) ((double) offset / mStepNanos);
+    }
+
+    /**
+     * 屏幕刷新时回调，按流逝的时间移动波，并计算到下一步的插值进度
+     * 只有波的位置或插值后的像素位置发生变化时才重绘，每帧最多重绘一次
+     * @param frameTimeNanos 这一帧的时间
+     */
+    private void onVsyncFrame(long frameTimeNanos){
+        if(!running){
+            WaveTicker.getInstance().unregister(mVsyncDriver);
+            return;
+        }
+
+        if(mProgress >= 0){
+            //进度模式下波不随时间移动，退出进度模式后重新计时
+            mLastStepNanos = 0;
+            mFraction = 0;
+            mFractionLevel = 0;
+            return;
+        }
+
+        if(mLastStepNanos == 0){
+            mLastStepNanos = frameTimeNanos;
+            if(mClockMode == CLOCK_MODE_SHARED){
+                alignToSharedClock(frameTimeNanos);
+            }
+        }
+
+        if(isContinuousActive()){
+            onContinuousFrame(frameTimeNanos);
+            return;
+        }
+
+        long elapsed = frameTimeNanos - mLastStepNanos;
+        boolean changed = false;
+        int oldWaveStart = mEngine.getWaveStart();
+
+        int tickSteps = tickSteps();
+        long tickNanos = mStepNanos * tickSteps;
+        if(elapsed >= tickNanos){
+            long ticks = elapsed / tickNanos;
+            long steps = ticks * tickSteps;
+            mLastStepNanos += steps * mStepNanos;
+            elapsed -= steps * mStepNanos;
+            if(mFrameStats != null){
+                mFrameStats.recordTick(frameTimeNanos,tickNanos,ticks);
+            }
+
+            int elementsTotal = mEngine.getElementsTotal();
+            long count = mWaveControler == null ? steps % elementsTotal : Math.min(steps,elementsTotal);
+            for(int i = 0;i < count;i++){
+                stepWave();
+            }
+            changed = true;
+        }
+
+        int level = 0;
+        int levels = 1;
+        if(mInterpolate && mWaveControler == null && mSpriteAtlas == null && mBakedSheet == null
+                && mQuality < QualityGovernor.QUALITY_MEDIUM){
+            //插值精确到像素即可，刷新率高于这个精度的帧不需要重绘
+            int elementHeight = mType == IMAGE_TYPE_TEXT ? mTextHeight : mImageSize;
+            levels = Math.max(1,(int) Math.ceil(elementHeight * mWaveOffset));
+            level = (int) (elapsed * levels / mStepNanos);
+        }
+
+        if(level != mFractionLevel){
+            mFractionLevel = level;
+            changed = true;
+        }
+        mFraction = (float) level / levels;
+
+        if(changed){
+            invalidateWave(oldWaveStart);
+        }
+    }
+
+    /**
+     * 连续模式下每帧按流逝的时间推进波的位置，位置是浮点数，每帧都重绘
+     * @param frameTimeNanos 这一帧的时间
+     */
+    private void onContinuousFrame(long frameTimeNanos){
+        long elapsed = frameTimeNanos - mLastStepNanos;
+        if(elapsed <= 0){
+            return;
+        }
+        mLastStepNanos = frameTimeNanos;
+
+        int oldWaveStart = mEngine.getWaveStart();
+        if(mClockMode == CLOCK_MODE_SHARED){
+            mPhase = sharedPhase(frameTimeNanos);
+        }else{
+            mPhase = (float) ((mPhase + (double) elapsed / mStepNanos) % mEngine.getElementsTotal());
+        }
+        mEngine.setWaveStart((int) mPhase);
+        invalidateWave(oldWaveStart);
     }
 
     /**
      * 波移动一次
      */
     protected void waveMove(){
-        if(mWaveControler != null){
-            mWaveStart = mWaveControler.onRefresh(mWaveStart,0,mElements.length - 1);
-        }else{
-            mWaveStart++;
+        int oldWaveStart = mEngine.getWaveStart();
+        stepWave();
+        invalidateWave(oldWaveStart);
+    }
+
+    /**
+     * 波移动后请求重绘，移动前后波都不在显示范围内时，显示的元素没有变化，不需要重绘
+     * 脏区在硬件加速下不起作用，而且API 28起已废弃，所以总是整体重绘，实际的开销由绘制时按裁剪区剔除元素来控制
+     * 噪声波每帧都是随机的，总是需要重绘
+     * @param oldWaveStart 移动前波的位置
+     */
+    private void invalidateWave(int oldWaveStart){
+        if(mType == IMAGE_TYPE_NOISE && mCustomWaveDrawer == null){
+            invalidate();
+            return;
         }
 
-        if(mWaveStart >= mElements.length || mWaveStart < 0){
-            mWaveStart = 0;
+        int displayStart = mEngine.getDisplayStart();
+        int oldFirst = oldWaveStart - displayStart;
+        int newFirst = mEngine.getWaveStart() - displayStart;
+
+        //插值时会用到下一个位置的波，所以多算一列
+        int first = Math.max(Math.min(oldFirst,newFirst),0);
+        int last = Math.min(Math.max(oldFirst,newFirst) + mWaveLength,mLength - 1);
+        if(first > last){
+            return;
         }
         invalidate();
     }
 
+    private void stepWave(){
+        if(mWaveControler != null){
+            mEngine.setWaveStart(mWaveControler.onRefresh(mEngine.getWaveStart(),0,mEngine.getElementsTotal() - 1));
+        }else{
+            mEngine.moveWave();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        ViewTreeObserver observer = getViewTreeObserver();
+        observer.addOnScrollChangedListener(mVisibilityListener);
+        observer.addOnGlobalLayoutListener(mVisibilityListener);
+        updateRunning();
+    }
+
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        ViewTreeObserver observer = getViewTreeObserver();
+        observer.removeOnScrollChangedListener(mVisibilityListener);
+        observer.removeOnGlobalLayoutListener(mVisibilityListener);
         recycle();
     }
 
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateRunning();
+    }
+
     /**
-     * 启动控件动画
+     * 宿主Activity进入后台（onStop）时窗口会变为不可见，回到前台时恢复
      */
-    public void start(){
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateRunning();
+    }
+
+    /**
+     * 根据是否启动、是否在窗口上、是否可见决定动画是否运行
+     * 暂停时波的位置和元素数据都保留，恢复时不需要重新分配
+     */
+    private void updateRunning(){
+        if(mEngine == null){
+            return;
+        }
+
+        boolean shouldRun = mStarted
+                && isAttachedToWindow()
+                && getWindowVisibility() == VISIBLE
+                && isShown()
+                && getGlobalVisibleRect(mVisibleRect);
+
+        if(shouldRun){
+            startTicking();
+        }else{
+            stopTicking();
+        }
+    }
+
+    private void startTicking(){
         if(!running){
             running = true;
-            mAnimHandler.sendEmptyMessageDelayed(0,mDuration);
+            updateQualityFloor();
+            registerPowerSaveReceiver();
+            if(mFrameStats != null){
+                mFrameStats.restartTicks();
+            }
+            if(mAnimMode == ANIM_MODE_VSYNC){
+                mLastStepNanos = 0;
+                WaveTicker.getInstance().register(mVsyncDriver);
+            }else if(mClockMode == CLOCK_MODE_DELAY){
+                mAnimHandler.sendEmptyMessageDelayed(ANIM_MESSAGE,mDuration);
+            }else{
+                long now = SystemClock.uptimeMillis();
+                startClock(now);
+                mAnimHandler.sendEmptyMessageAtTime(ANIM_MESSAGE,WaveClock.nextStepTime(now,mClockOrigin,mClockPeriod * tickSteps()));
+            }
         }
     }
 
-    /**
-     * 暂停控件动画
-     */
-    public void pause(){
+    private void stopTicking(){
         if(running){
             running = false;
+            unregisterPowerSaveReceiver();
             mAnimHandler.removeCallbacksAndMessages(null);
+            WaveTicker.getInstance().unregister(mVsyncDriver);
         }
     }
 
+    /**
+     * 启动控件动画，控件默认是启动的
+     * 控件不可见、离开窗口或宿主进入后台时会自动暂停，重新可见后自动恢复
+     */
+    public void start(){
+        mStarted = true;
+        updateRunning();
+    }
+
+    /**
+     * 暂停控件动画，暂停后不会再自动恢复，需要重新调用{@link #start}
+     */
+    public void pause(){
+        mStarted = false;
+        updateRunning();
+    }
+
+    /**
+     * 动画是否正在运行
+     * @return 动画是否正在运行
+     */
+    public boolean isRunning(){
+        return running;
+    }
+
     /**
      * 设置动画间隔时间，这个时间是指波每移动一步的时间，单位为毫秒
      * @param duration 动画间隔时间
@@ -834,6 +1284,146 @@ public class WaveLoadingView extends View {
         }
 
         mDuration = duration;
+        mStepNanos = Math.max(duration,1) * 1000000L;
+        if(mClockMode == CLOCK_MODE_SHARED){
+            mLastStepNanos = 0;
+        }
+    }
+
+    /**
+     * 设置波的移动速度，单位为元素/秒，等价于{@link #setDuration}
+     * @param elementsPerSecond 每秒移动的元素个数
+     */
+    public void setSpeed(float elementsPerSecond){
+        if(elementsPerSecond <= 0){
+            return;
+        }
+
+        mStepNanos = Math.max((long) (1000000000L / elementsPerSecond),1);
+        mDuration = Math.max(Math.round(1000 / elementsPerSecond),1);
+        if(mClockMode == CLOCK_MODE_SHARED){
+            mLastStepNanos = 0;
+        }
+    }
+
+    /**
+     * 获取波的移动速度
+     * @return 每秒移动的元素个数
+     */
+    public float getSpeed(){
+        return 1000000000f / mStepNanos;
+    }
+
+    /**
+     * 设置动画驱动方式
+     * {@link WaveLoadingView#ANIM_MODE_VSYNC} 跟随屏幕刷新，波的速度不受刷新率影响，默认方式
+     * {@link WaveLoadingView#ANIM_MODE_HANDLER} 按固定延时刷新，作为兼容的备用方式
+     * @param animMode 动画驱动方式
+     */
+    public void setAnimMode(int animMode){
+        if(animMode != ANIM_MODE_HANDLER && animMode != ANIM_MODE_VSYNC){
+            return;
+        }
+
+        boolean isRunning = mStarted;
+        pause();
+        mAnimMode = animMode;
+        mFraction = 0;
+        mFractionLevel = 0;
+        if(isRunning){
+            start();
+        }
+    }
+
+    /**
+     * 获取动画驱动方式
+     * @return 动画驱动方式
+     */
+    public int getAnimMode(){
+        return mAnimMode;
+    }
+
+    /**
+     * 设置计时方式
+     * {@link WaveLoadingView#CLOCK_MODE_DELAY} 每步处理完后再延时，默认方式
+     * {@link WaveLoadingView#CLOCK_MODE_FIXED_RATE} 按时钟和开始时间计算位置，迟到时跳过中间的步
+     * {@link WaveLoadingView#CLOCK_MODE_SHARED} 按时钟的零点计算位置，相同配置的控件保持同一相位
+     * {@link WaveLoadingView#ANIM_MODE_VSYNC}本身按流逝的时间推进，只有共享时钟有区别
+     * 设置了波控制器时无法直接算出位置，迟到时按步数依次调用控制器
+     * @param clockMode 计时方式
+     */
+    public void setClockMode(int clockMode){
+        if(clockMode < CLOCK_MODE_DELAY || clockMode > CLOCK_MODE_SHARED || clockMode == mClockMode){
+            return;
+        }
+
+        boolean isRunning = mStarted;
+        pause();
+        mClockMode = clockMode;
+        if(isRunning){
+            start();
+        }
+    }
+
+    /**
+     * 获取计时方式
+     * @return 计时方式
+     */
+    public int getClockMode(){
+        return mClockMode;
+    }
+
+    /**
+     * 是否在两步之间插值，只在{@link WaveLoadingView#ANIM_MODE_VSYNC}且没有设置波控制器时生效
+     * @param enable 是否插值
+     */
+    public void setInterpolationEnabled(boolean enable){
+        mInterpolate = enable;
+        if(!enable){
+            mFraction = 0;
+            mFractionLevel = 0;
+            invalidate();
+        }
+    }
+
+    /**
+     * 是否启用连续模式，波的位置是浮点数，元素高度按余弦曲线平滑变化，坐标可以落在像素之间
+     * 只在{@link WaveLoadingView#ANIM_MODE_VSYNC}且没有设置波控制器时生效，开启后不使用插值和精灵图集
+     * @param enable 是否启用连续模式
+     */
+    public void setContinuousEnabled(boolean enable){
+        if(mContinuous == enable){
+            return;
+        }
+
+        mContinuous = enable;
+        mPhase = mEngine.getWaveStart();
+        mLastStepNanos = 0;
+        mFraction = 0;
+        mFractionLevel = 0;
+        invalidate();
+    }
+
+    public boolean isContinuousEnabled(){
+        return mContinuous;
+    }
+
+    /**
+     * 是否按宽度自动计算元素个数，只在宽度为确定值时生效，文本风格的元素个数由文本决定，不受影响
+     * 元素个数变化后波回到起点
+     * @param enable 是否自动计算元素个数
+     */
+    public void setAutoFitEnabled(boolean enable){
+        if(mAutoFit == enable){
+            return;
+        }
+
+        mAutoFit = enable;
+        requestLayout();
+    }
+
+    public boolean isAutoFitEnabled(){
+        return mAutoFit;
     }
 
     /**
@@ -846,6 +1436,7 @@ public class WaveLoadingView extends View {
      */
     public void setColor(int color){
         mColor = color;
+        invalidateRenderCaches();
         invalidate();
     }
 
@@ -867,29 +1458,368 @@ public class WaveLoadingView extends View {
      * @param waveLength 波的宽度
      */
     public void setWaveLength(int waveLength){
-        boolean isRunning = running;
-        pause();
+        if(waveLength < 1 || waveLength + 2 > mLength || waveLength == mWaveLength){
+            return;
+        }
 
-        try{
-            if(waveLength + 2 > mLength){
-                return;
-            }
-            mWaveLength = waveLength;
+        int oldWidth = contentWidth();
+        int oldHeight = contentHeight();
+        mWaveLength = waveLength;
+        mEngine.setup(mLength,mWaveLength);
+        mPhase = 0;
+        relayoutIfResized(oldWidth,oldHeight);
+    }
 
-            int elementsTotal = mLength + (mWaveLength - 1) * 2;
-            mElements = new Element[elementsTotal];
-            for(int i = 0;i < elementsTotal;i++){
-                mElements[i] = new Element();
-            }
+    /**
+     * 启用帧表，波只会在有限的几个位置间移动，启用后每个位置的元素高度和透明度只计算一次，
+     * 绘制时直接查表。元素很多时帧表过大，会自动退回逐帧计算
+     * @param enable 是否启用帧表
+     */
+    public void setFrameTableEnabled(boolean enable){
+        mEngine.setFrameTableEnabled(enable);
+        if(enable && getHeight() > 0){
+            buildFrameTable();
+        }
+        invalidate();
+    }
 
-            requestLayout();
-        }finally {
-            if(isRunning){
-                start();
+    /**
+     * 是否启用了帧表
+     * @return 是否启用了帧表
+     */
+    public boolean isFrameTableEnabled(){
+        return mEngine.isFrameTableEnabled();
+    }
+
+    /**
+     * 启用精灵图集，每种尺寸和透明度的元素只绘制一次，之后直接贴图，适合自定义绘制器等绘制开销较大的情况
+     * 启用后不再在两步之间插值，文本和噪声风格不受影响
+     * @param enable 是否启用精灵图集
+     */
+    public void setSpriteAtlasEnabled(boolean enable){
+        if(enable == (mSpriteAtlas != null)){
+            return;
+        }
+
+        if(enable){
+            mSpriteAtlas = new SpriteAtlas(mWaveCanvas,new CanvasWaveCanvas(mPaint));
+            mFraction = 0;
+            mFractionLevel = 0;
+        }else{
+            mSpriteAtlas.release();
+            mSpriteAtlas = null;
+        }
+        invalidate();
+    }
+
+    /**
+     * 是否启用了精灵图集
+     * @return 是否启用了精灵图集
+     */
+    public boolean isSpriteAtlasEnabled(){
+        return mSpriteAtlas != null;
+    }
+
+    /**
+     * 启用批量绘制，透明度相同的元素合并成一次绘制调用，绘制调用次数只和幻影效果的透明度种类有关，
+     * 元素较多时可以明显减轻渲染线程的负担。圆点、正方形、长方形和噪声风格生效，启用精灵图集时以图集为准
+     * @param enable 是否启用批量绘制
+     */
+    public void setBatchDrawEnabled(boolean enable){
+        if(enable == (mBatchCanvas != null)){
+            return;
+        }
+
+        mBatchCanvas = enable ? new AlphaBatchCanvas(mWaveCanvas,mWaveCanvas) : null;
+        invalidate();
+    }
+
+    /**
+     * 是否启用了批量绘制
+     * @return 是否启用了批量绘制
+     */
+    public boolean isBatchDrawEnabled(){
+        return mBatchCanvas != null;
+    }
+
+    /**
+     * 启用烘焙模式，第一次绘制前把波移动一个周期的所有帧绘制到一张位图里，之后每帧只贴一次图，
+     * 适合自定义绘制器等绘制开销较大的情况。外观或尺寸变化后重新烘焙
+     * 启用后不再在两步之间插值，连续模式和由振幅驱动的噪声波直接绘制，帧图表超过内存上限时也退回直接绘制
+     * @param enable 是否启用烘焙模式
+     */
+    public void setBakedEnabled(boolean enable){
+        if(enable == (mBakedSheet != null)){
+            return;
+        }
+
+        if(enable){
+            mBakedSheet = new BakedSheet();
+            mFraction = 0;
+            mFractionLevel = 0;
+        }else{
+            mBakedSheet.release();
+            mBakedSheet = null;
+        }
+        invalidate();
+    }
+
+    /**
+     * 是否启用了烘焙模式
+     * @return 是否启用了烘焙模式
+     */
+    public boolean isBakedEnabled(){
+        return mBakedSheet != null;
+    }
+
+    /**
+     * 设置烘焙帧的磁盘缓存，所有控件共用，设为null时不使用磁盘缓存
+     * 启用了烘焙模式的控件烘焙前先从缓存中读取，未命中时烘焙完成后在后台写入，
+     * 冷启动时常用的配置不需要重新绘制。自定义图片、绘制器和波形不会被缓存
+     * @param cache 磁盘缓存
+     */
+    public static void setDiskCache(WaveDiskCache cache){
+        sDiskCache = cache;
+    }
+
+    /**
+     * 获取烘焙帧的磁盘缓存
+     * @return 磁盘缓存，没有设置时为null
+     */
+    public static WaveDiskCache getDiskCache(){
+        return sDiskCache;
+    }
+
+    /**
+     * 启用帧统计，记录每帧的布局和绘制耗时，以及波每一步的实际间隔、迟到和跳过的次数
+     * 关闭时不会有任何计时开销
+     * @param enable 是否启用帧统计
+     */
+    public void setFrameStatsEnabled(boolean enable){
+        if(enable && mFrameStats == null){
+            mFrameStats = new WaveFrameStats();
+        }else if(!enable){
+            mFrameStats = null;
+            mOnFrameStatsListener = null;
+        }
+    }
+
+    /**
+     * 获取帧统计，只能在主线程读取
+     * @return 帧统计，没有启用时为null
+     */
+    public WaveFrameStats getFrameStats(){
+        return mFrameStats;
+    }
+
+    /**
+     * 设置帧统计监听器，设置后自动启用帧统计
+     * @param listener 帧统计监听器
+     */
+    public void setOnFrameStatsListener(OnFrameStatsListener listener){
+        if(listener != null){
+            setFrameStatsEnabled(true);
+        }
+        mOnFrameStatsListener = listener;
+    }
+
+    /**
+     * 启用画质自动调节，按每帧实际的绘制耗时在{@link QualityGovernor}的几个档位之间切换
+     * 超出预算时依次停止插值和连续移动、减少噪声波的竖条、关闭抗锯齿和幻影效果、降低刷新频率，耗时降下来后再逐档恢复
+     * 设备内存较低或处于省电模式时直接限制最高档位，动画运行期间省电模式切换时立即生效
+     * 关闭时恢复全部效果，也不会有任何计时开销
+     * @param enable 是否启用画质自动调节
+     */
+    public void setAdaptiveQualityEnabled(boolean enable){
+        if(enable && mQualityGovernor == null){
+            mQualityGovernor = new QualityGovernor();
+            updateQualityFloor();
+            if(running){
+                registerPowerSaveReceiver();
             }
+        }else if(!enable && mQualityGovernor != null){
+            mQualityGovernor = null;
+            unregisterPowerSaveReceiver();
+            applyQuality(QualityGovernor.QUALITY_HIGH);
+        }
+    }
+
+    public boolean isAdaptiveQualityEnabled(){
+        return mQualityGovernor != null;
+    }
+
+    /**
+     * 设置画质自动调节的每帧绘制预算，默认为{@link QualityGovernor#DEFAULT_BUDGET_NANOS}
+     * @param budgetNanos 每帧的绘制预算，单位为纳秒，必须大于0
+     */
+    public void setQualityBudget(long budgetNanos){
+        setAdaptiveQualityEnabled(true);
+        mQualityGovernor.setBudgetNanos(budgetNanos);
+    }
+
+    /**
+     * 获取当前的画质档位
+     * @return 档位，没有启用画质自动调节时总是{@link QualityGovernor#QUALITY_HIGH}
+     */
+    public int getQuality(){
+        return mQuality;
+    }
+
+    /**
+     * 设置画质档位变化监听器
+     * @param listener 画质档位变化监听器
+     */
+    public void setOnQualityChangeListener(OnQualityChangeListener listener){
+        mOnQualityChangeListener = listener;
+    }
+
+    /**
+     * 按设备状态设置最低档位：内存较低的设备限制为中档，省电模式限制为低档
+     * 过热降频时绘制耗时会随之变长，由实测的耗时降档
+     */
+    private void updateQualityFloor(){
+        if(mQualityGovernor == null){
+            return;
+        }
+
+        Context context = getContext();
+        int floor = QualityGovernor.QUALITY_HIGH;
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if(activityManager != null && activityManager.isLowRamDevice()){
+            floor = QualityGovernor.QUALITY_MEDIUM;
+        }
+
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        if(powerManager != null && powerManager.isPowerSaveMode()){
+            floor = QualityGovernor.QUALITY_LOW;
+        }
+
+        if(mQualityGovernor.setFloorQuality(floor)){
+            applyQuality(mQualityGovernor.getQuality());
         }
     }
 
+    /**
+     * 只在画质自动调节启用且动画运行时监听省电模式，暂停或离开窗口时注销，应用的Context不会一直持有控件
+     */
+    private void registerPowerSaveReceiver(){
+        if(mQualityGovernor == null || mPowerSaveReceiver != null){
+            return;
+        }
+
+        mPowerSaveReceiver = new PowerSaveReceiver();
+        getContext().getApplicationContext().registerReceiver(mPowerSaveReceiver,
+                new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+    }
+
+    private void unregisterPowerSaveReceiver(){
+        if(mPowerSaveReceiver != null){
+            getContext().getApplicationContext().unregisterReceiver(mPowerSaveReceiver);
+            mPowerSaveReceiver = null;
+        }
+    }
+
+    /**
+     * 切换画质档位，波从当前位置继续移动，图集和烘焙的帧按新的档位重新绘制
+     * @param quality 档位
+     */
+    private void applyQuality(int quality){
+        if(quality == mQuality){
+            return;
+        }
+
+        mQuality = quality;
+        mPaint.setAntiAlias(quality < QualityGovernor.QUALITY_LOW);
+        mRenderer.setNoiseBars(quality < QualityGovernor.QUALITY_MEDIUM
+                ? WaveRenderer.DEFAULT_NOISE_BARS : WaveRenderer.DEFAULT_NOISE_BARS / 2);
+
+        //连续移动和逐步移动之间切换时相位与波的位置对齐，重新开始计时
+        mPhase = mEngine.getWaveStart();
+        mFraction = 0;
+        mFractionLevel = 0;
+        mLastStepNanos = 0;
+        invalidateRenderCaches();
+        invalidate();
+
+        if(mOnQualityChangeListener != null){
+            mOnQualityChangeListener.onQualityChanged(quality);
+        }
+    }
+
+    /**
+     * 元素的外观发生变化，图集中的元素和烘焙的帧都需要重新绘制
+     */
+    private void invalidateRenderCaches(){
+        if(mSpriteAtlas != null){
+            mSpriteAtlas.invalidate();
+        }
+        if(mBakedSheet != null){
+            mBakedSheet.invalidate();
+        }
+    }
+
+    /**
+     * 写入一个振幅，噪声风格的竖条高度改为由振幅决定，最新的振幅显示在最右边
+     * 可以在任意线程调用，但同一时间只能有一个线程写入。不加锁也不分配内存，
+     * 连续写入的多个振幅在下一帧一起绘制，每帧最多重绘一次
+     * @param amplitude 振幅，范围0~1
+     * @return 绘制跟不上写入、缓冲区已满时返回false，这个振幅被丢弃
+     */
+    public boolean pushAmplitude(float amplitude){
+        boolean accepted = mAmplitudeBuffer.offer(amplitude);
+        mAmplitudeInput = true;
+        if(mInvalidatePending.compareAndSet(false,true)){
+            postInvalidateOnAnimation();
+        }
+        return accepted;
+    }
+
+    /**
+     * 设置进度，波峰停在进度对应的位置，不再随时间移动
+     * 可以在任意线程频繁调用，不加锁也不分配内存，每帧最多重绘一次，只绘制最新的进度
+     * @param progress 进度，范围0~1，超出范围时取边界值
+     */
+    public void setProgress(float progress){
+        if(!(progress >= 0)){
+            progress = 0;
+        }else if(progress > 1){
+            progress = 1;
+        }
+
+        mProgress = progress;
+        if(mInvalidatePending.compareAndSet(false,true)){
+            postInvalidateOnAnimation();
+        }
+    }
+
+    /**
+     * 获取进度
+     * @return 进度，没有设置进度时为-1
+     */
+    public float getProgress(){
+        return mProgress;
+    }
+
+    /**
+     * 清除进度，波恢复随时间移动，可以在任意线程调用
+     */
+    public void clearProgress(){
+        mProgress = -1;
+        if(mInvalidatePending.compareAndSet(false,true)){
+            postInvalidateOnAnimation();
+        }
+    }
+
+    /**
+     * 清除写入的振幅，噪声风格恢复为随机高度，只能在主线程调用
+     */
+    public void clearAmplitudes(){
+        mAmplitudeInput = false;
+        mAmplitudeBuffer.clear();
+        mAmplitudes = null;
+        invalidate();
+    }
+
     /**
      * 设置波控制器，默认下波是从左往右移动的，如果设置成功，则原来的波移动方式会被替代
      * @param waveControler 波控制器
@@ -903,21 +1833,14 @@ public class WaveLoadingView extends View {
      * @param interval 元素间的间隔
      */
     public void setInterval(int interval){
-        boolean isRunning = running;
-        pause();
-
-        try{
-            if(interval < 0){
-                return;
-            }
-
-            mInterval = interval;
-            requestLayout();
-        }finally {
-            if(isRunning){
-                start();
-            }
+        if(interval < 0){
+            return;
         }
+
+        int oldWidth = contentWidth();
+        int oldHeight = contentHeight();
+        mInterval = interval;
+        relayoutIfResized(oldWidth,oldHeight);
     }
 
     /**
@@ -928,13 +1851,164 @@ public class WaveLoadingView extends View {
         return mInterval;
     }
 
+    /**
+     * 改用文本风格，每个字符是一个元素，元素个数变为文本长度
+     * 文本长度至少要比波的宽度多2，否则不生效
+     * @param text 文本
+     */
+    public void setText(String text){
+        if(text == null || text.length() < mWaveLength + 2){
+            return;
+        }
+
+        int oldWidth = contentWidth();
+        int oldHeight = contentHeight();
+        mText = text;
+        mTextHeight = WaveStyles.textWidthToHtight(mTextWidth);
+        mType = IMAGE_TYPE_TEXT;
+        invalidateRenderCaches();
+        if(text.length() != mLength){
+            mLength = text.length();
+            mEngine.setup(mLength,mWaveLength);
+            mPhase = 0;
+        }
+        relayoutIfResized(oldWidth,oldHeight);
+    }
+
+    /**
+     * 获取文本，不是文本风格时为null
+     * @return 文本
+     */
+    public String getText(){
+        return mType == IMAGE_TYPE_TEXT ? mText : null;
+    }
+
+    /**
+     * 一次性应用一组配置，可以在任意线程调用，配置在下一帧开始前生效
+     * 连续设置多次时只有最后一次生效，尺寸变化时才会重新布局，动画不会中断
+     * 自定义图片、绘制器和控制器不属于配置，需要在主线程单独设置
+     * 没有设置自定义图片时，配置中的{@link WaveLoadingView#IMAGE_TYPE_DRAWABLE}不生效，保持原来的风格
+     * @param config 配置
+     */
+    public void setConfig(WaveConfig config){
+        if(config == null){
+            return;
+        }
+
+        if(mPendingConfig.getAndSet(config) == null){
+            postOnAnimation(mApplyConfigRunnable);
+        }
+    }
+
+    /**
+     * 获取当前配置的快照，只能在主线程调用
+     * 快照如实反映控件的状态，不会再次检查参数，布局属性中超出{@link WaveConfig.Builder#build()}限制的值也会原样返回
+     * @return 当前配置
+     */
+    public WaveConfig getConfig(){
+        return new WaveConfig.Builder()
+                .setText(mType == IMAGE_TYPE_TEXT ? mText : null)
+                .setType(mType == IMAGE_TYPE_TEXT ? IMAGE_TYPE_CIRCLE : mType)
+                .setLength(mLength)
+                .setWaveLength(mWaveLength)
+                .setTextSize(mTextWidth)
+                .setColor(mColor)
+                .setImageSize(mImageSize)
+                .setInterval(mInterval)
+                .setWaveHeight(mWaveHeight)
+                .setRectRadius(mRectRadius)
+                .setGhostEffect(ghostEffect)
+                .setGhostAlpha(mGhostAlphaMin,mGhostAlphaMax)
+                .setDuration(mDuration)
+                .setWaveShape(mEngine.getWaveShape())
+                .snapshot();
+    }
+
+    /**
+     * 复用控件时绑定新的配置，配置立即生效并调用{@link #reset}，只能在主线程调用
+     * 与{@link #setConfig}相同，没有设置自定义图片时配置中的{@link WaveLoadingView#IMAGE_TYPE_DRAWABLE}不生效
+     * 控件、画笔和监听器都不会重新创建，元素个数在已分配的容量以内时也不会重新分配，
+     * 适合RecyclerView等复用控件的场景
+     * @param config 配置
+     */
+    public void rebind(WaveConfig config){
+        if(config == null){
+            return;
+        }
+
+        mPendingConfig.set(null);
+        removeCallbacks(mApplyConfigRunnable);
+        applyConfig(config);
+        reset();
+    }
+
+    /**
+     * 把动画恢复到刚创建时的状态，波回到起点，清除进度、振幅、帧统计和自动调节的画质档位，配置保持不变，只能在主线程调用
+     */
+    public void reset(){
+        mEngine.setWaveStart(0);
+        mPhase = 0;
+        mFraction = 0;
+        mFractionLevel = 0;
+        mLastStepNanos = 0;
+        mProgress = -1;
+        mAmplitudeInput = false;
+        mAmplitudeBuffer.clear();
+        if(mFrameStats != null){
+            mFrameStats.reset();
+        }
+        if(mQualityGovernor != null && mQualityGovernor.reset()){
+            applyQuality(mQualityGovernor.getQuality());
+        }
+        invalidate();
+    }
+
+    private void applyConfig(WaveConfig config){
+        int oldWidth = contentWidth();
+        int oldHeight = contentHeight();
+
+        mText = config.getText();
+        mTextWidth = config.getTextSize();
+        mTextHeight = WaveStyles.textWidthToHtight(mTextWidth);
+        int type = config.getType();
+        if(type != IMAGE_TYPE_DRAWABLE || mCustomWaveDrawable != null){
+            mType = type;
+        }
+        mColor = config.getColor();
+        mImageSize = config.getImageSize();
+        mInterval = config.getInterval();
+        mWaveHeight = config.getWaveHeight();
+        mWaveOffset = WaveStyles.waveOffsetOf(mWaveHeight);
+        mRectRadius = config.getRectRadius();
+        ghostEffect = config.isGhostEffect();
+        mDuration = config.getDuration();
+        mStepNanos = Math.max(mDuration,1) * 1000000L;
+
+        if(config.getGhostAlphaMin() != mGhostAlphaMin || config.getGhostAlphaMax() != mGhostAlphaMax){
+            mGhostAlphaMin = config.getGhostAlphaMin();
+            mGhostAlphaMax = config.getGhostAlphaMax();
+            mEngine.setGhostAlpha(mGhostAlphaMin,mGhostAlphaMax);
+        }
+        mEngine.setWaveShape(config.getWaveShape());
+
+        if(config.getLength() != mLength || config.getWaveLength() != mWaveLength){
+            mLength = config.getLength();
+            mWaveLength = config.getWaveLength();
+            mEngine.setup(mLength,mWaveLength);
+            mPhase = 0;
+        }
+
+        invalidateRenderCaches();
+        relayoutIfResized(oldWidth,oldHeight);
+    }
+
     /**
      * 设置波的风格，只能设置如下几种风格，且需要提前设置好波长度{@link WaveLoadingView#setWaveLength}
      * {@link WaveLoadingView#IMAGE_TYPE_CIRCLE}
      * {@link WaveLoadingView#IMAGE_TYPE_RECT}
      * {@link WaveLoadingView#IMAGE_TYPE_SQUARE}
      * {@link WaveLoadingView#IMAGE_TYPE_NOISE}
-     * {@link WaveLoadingView#IMAGE_TYPE_DRAWABLE}
+     * {@link WaveLoadingView#IMAGE_TYPE_DRAWABLE}，需要先设置自定义图片，没有设置时忽略，保持原来的风格
      * @param type 波的风格
      */
     public void setType(int type){
@@ -942,9 +2016,10 @@ public class WaveLoadingView extends View {
             return;
         }
 
-        if(mType == IMAGE_TYPE_DRAWABLE && mCustomWaveDrawable == null) return;
+        if(type == IMAGE_TYPE_DRAWABLE && mCustomWaveDrawable == null) return;
 
         mType = type;
+        invalidateRenderCaches();
         invalidate();
     }
 
@@ -976,6 +2051,7 @@ public class WaveLoadingView extends View {
      */
     public void setGhostEffect(boolean allowGhostEffect){
         ghostEffect = allowGhostEffect;
+        invalidateRenderCaches();
         invalidate();
     }
 
@@ -992,9 +2068,34 @@ public class WaveLoadingView extends View {
 
         mGhostAlphaMin = minAlpha;
         mGhostAlphaMax = maxAlpha;
+        mEngine.setGhostAlpha(mGhostAlphaMin,mGhostAlphaMax);
+        invalidateRenderCaches();
         invalidate();
     }
 
+    /**
+     * 设置波形，默认为{@link WaveShape#TRIANGLE}，也可以继承{@link WaveShape}自定义
+     * 波形只在参数变化时求值一次，不影响每帧的开销
+     * @param shape 波形
+     */
+    public void setWaveShape(WaveShape shape){
+        if(shape == null){
+            return;
+        }
+
+        mEngine.setWaveShape(shape);
+        invalidateRenderCaches();
+        invalidate();
+    }
+
+    /**
+     * 获取波形
+     * @return 波形
+     */
+    public WaveShape getWaveShape(){
+        return mEngine.getWaveShape();
+    }
+
     /**
      * 设置元素自定义图片,此方法会复制传入的Drawable，所以此Drawable的原始尺寸不要过大，否则会很消耗内存
      * @param drawable 自定义图标
@@ -1005,6 +2106,7 @@ public class WaveLoadingView extends View {
         }
         mCustomWaveDrawable = drawable.mutate();
         mType = IMAGE_TYPE_DRAWABLE;
+        invalidateRenderCaches();
         invalidate();
     }
 
@@ -1014,16 +2116,21 @@ public class WaveLoadingView extends View {
      */
     public void setCustomWaveDrawer(AbsWaveDrawer waveDrawer){
         mCustomWaveDrawer = waveDrawer;
-        mCustomWaveRect = new Rect();
+        invalidateRenderCaches();
         invalidate();
     }
 
     /**
      * 解除绑定，避免内存泄漏
+     * 只是停止动画，重新添加到窗口后（例如RecyclerView中复用）可以继续运行
      */
     protected void recycle(){
-        mAnimHandler.removeCallbacksAndMessages(null);
-        mAnimHandler.recycle();
-        mAnimHandler = null;
+        stopTicking();
+        if(mSpriteAtlas != null){
+            mSpriteAtlas.release();
+        }
+        if(mBakedSheet != null){
+            mBakedSheet.release();
+        }
     }
 }
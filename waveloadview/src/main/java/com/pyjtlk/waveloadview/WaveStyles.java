@@ -0,0 +1,156 @@
+package com.pyjtlk.waveloadview;
+
+import com.pyjtlk.waveloadview.core.WaveCanvas;
+import com.pyjtlk.waveloadview.core.WaveLayoutEngine;
+import com.pyjtlk.waveloadview.core.WaveRenderer;
+import com.pyjtlk.waveloadview.core.WaveShape;
+
+/**
+ * 按风格选择渲染器的绘制方法，供{@link WaveLoadingView}以外的载体共用
+ */
+final class WaveStyles {
+    /**
+     * 文本风格，只能通过设置文本启用
+     */
+    static final int IMAGE_TYPE_TEXT = 0;
+
+    private WaveStyles(){
+    }
+
+    /**
+     * 文本风格的元素高度，由文字大小推算
+     * @param width 文字大小
+     */
+    static int textWidthToHtight(int width){
+        return (int) ((width +  0.00000007) / 0.7535);
+    }
+
+    /**
+     * 把波形高度转换为相邻元素的高度差占元素高度的比例
+     * @param waveHeight 波形高度，未知的值按{@link WaveLoadingView#WAVE_HEIGHT_NORMAL}处理
+     */
+    static float waveOffsetOf(int waveHeight){
+        switch(waveHeight){
+            case WaveLoadingView.WAVE_HEIGHT_SLIGHT:
+                return 0.25f;
+
+            case WaveLoadingView.WAVE_HEIGHT_BIG:
+                return 0.75f;
+
+            case WaveLoadingView.WAVE_HEIGHT_LARGE:
+                return 1f;
+
+            default:
+                return 0.5f;
+        }
+    }
+
+    /**
+     * 圆角半径不能超过元素尺寸的一半，也不会小于0
+     * @param rectRadius 圆角半径
+     * @param imageSize 元素尺寸
+     */
+    static int clampRectRadius(int rectRadius,int imageSize){
+        return rectRadius * 2 > imageSize ? Math.max(imageSize / 2 - 1,0) : rectRadius;
+    }
+
+    /**
+     * 布局属性中幻影效果的透明度下限，小于10时取10，与上限冲突时两者都恢复默认值
+     * @param alphaMin 透明度下限
+     * @param alphaMax 透明度上限
+     */
+    static int ghostAlphaMinOf(int alphaMin,int alphaMax){
+        alphaMin = Math.max(alphaMin,10);
+        alphaMax = Math.min(alphaMax,WaveLoadingView.GHOST_ALPHA_MAX_DEFAULT);
+        return alphaMax < alphaMin ? WaveLoadingView.GHOST_ALPHA_MIN_DEFAULT : alphaMin;
+    }
+
+    /**
+     * 布局属性中幻影效果的透明度上限，大于255时取255，与下限冲突时两者都恢复默认值
+     * @param alphaMin 透明度下限
+     * @param alphaMax 透明度上限
+     */
+    static int ghostAlphaMaxOf(int alphaMin,int alphaMax){
+        alphaMin = Math.max(alphaMin,10);
+        alphaMax = Math.min(alphaMax,WaveLoadingView.GHOST_ALPHA_MAX_DEFAULT);
+        return alphaMax < alphaMin ? WaveLoadingView.GHOST_ALPHA_MAX_DEFAULT : alphaMax;
+    }
+
+    /**
+     * 把布局属性waveShape的枚举值转换为波形
+     * @param value 枚举值
+     * @return 波形，未知的值按三角形处理
+     */
+    static WaveShape waveShape(int value){
+        switch(value){
+            case 1:
+                return WaveShape.SINE;
+
+            case 2:
+                return WaveShape.GAUSSIAN;
+
+            case 3:
+                return WaveShape.SQUARE;
+
+            default:
+                return WaveShape.TRIANGLE;
+        }
+    }
+
+    /**
+     * 把内置波形转换为布局属性waveShape的枚举值
+     * @param shape 波形
+     * @return 枚举值，自定义波形返回-1
+     */
+    static int waveShapeValue(WaveShape shape){
+        if(shape == WaveShape.TRIANGLE){
+            return 0;
+        }else if(shape == WaveShape.SINE){
+            return 1;
+        }else if(shape == WaveShape.GAUSSIAN){
+            return 2;
+        }else if(shape == WaveShape.SQUARE){
+            return 3;
+        }
+        return -1;
+    }
+
+    /**
+     * 绘制一帧，文本风格需要提前设置好渲染器的文本基线
+     * @param type 风格
+     * @param waveDrawer 自定义波绘制器，不为null时忽略风格
+     */
+    static void draw(int type,WaveLoadingView.AbsWaveDrawer waveDrawer,WaveRenderer renderer,
+                     WaveLayoutEngine engine,WaveCanvas canvas){
+        if(waveDrawer != null){
+            renderer.drawCustom(engine,canvas);
+            return;
+        }
+
+        switch(type){
+            case IMAGE_TYPE_TEXT:
+                renderer.drawText(engine,canvas);
+                break;
+
+            case WaveLoadingView.IMAGE_TYPE_CIRCLE:
+                renderer.drawCircles(engine,canvas);
+                break;
+
+            case WaveLoadingView.IMAGE_TYPE_SQUARE:
+                renderer.drawSquares(engine,canvas);
+                break;
+
+            case WaveLoadingView.IMAGE_TYPE_RECT:
+                renderer.drawRects(engine,canvas);
+                break;
+
+            case WaveLoadingView.IMAGE_TYPE_NOISE:
+                renderer.drawNoise(engine,canvas);
+                break;
+
+            case WaveLoadingView.IMAGE_TYPE_DRAWABLE:
+                renderer.drawImages(engine,canvas);
+                break;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.pyjtlk.waveloadview;
+
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * 进程内共享的动画时钟，只能在主线程使用
+ * 所有运行中的波都注册到这里，每帧只有一个Choreographer回调，依次推进各个波，
+ * 它们的重绘请求也会在同一帧内合并处理
+ */
+final class WaveTicker implements Choreographer.FrameCallback {
+    /**
+     * 每帧回调一次
+     */
+    interface Callback{
+        /**
+         * @param frameTimeNanos 这一帧的时间
+         */
+        void onTick(long frameTimeNanos);
+    }
+
+    private static WaveTicker sInstance;
+
+    private final ArrayList<Callback> mCallbacks = new ArrayList<>();
+    private Callback mDispatching[] = new Callback[8];
+    private boolean mPosted;
+
+    private WaveTicker(){
+    }
+
+    static WaveTicker getInstance(){
+        if(sInstance == null){
+            sInstance = new WaveTicker();
+        }
+        return sInstance;
+    }
+
+    /**
+     * 注册回调，已经注册过的不会重复注册
+     * @param callback 回调
+     */
+    void register(Callback callback){
+        if(mCallbacks.contains(callback)){
+            return;
+        }
+
+        mCallbacks.add(callback);
+        if(!mPosted){
+            mPosted = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * 注销回调，没有回调时停止监听屏幕刷新
+     * @param callback 回调
+     */
+    void unregister(Callback callback){
+        mCallbacks.remove(callback);
+        if(mCallbacks.isEmpty() && mPosted){
+            mPosted = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mPosted = false;
+
+        //回调中可能会注册或注销，先复制一份再分发，分发途中注销的回调自己会忽略这一帧
+        int count = mCallbacks.size();
+        if(mDispatching.length < count){
+            mDispatching = new Callback[count * 2];
+        }
+        mCallbacks.toArray(mDispatching);
+
+        for(int i = 0;i < count;i++){
+            Callback callback = mDispatching[i];
+            mDispatching[i] = null;
+            callback.onTick(frameTimeNanos);
+        }
+
+        if(!mCallbacks.isEmpty() && !mPosted){
+            mPosted = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}